@@ -0,0 +1,372 @@
+package com.donkingliang.consecutivescroller;
+
+import android.view.View;
+import android.view.ViewParent;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * @Author donkingliang
+ * @Description 监听联动容器中RecyclerView的数据变化。数据变化时记录当前显示位置的锚点(子view + item的位置 + 像素偏移量)，
+ * 布局完成后按锚点精确地恢复显示位置，而不是用RecyclerView估算的滑动偏移量恢复。
+ * @Date 2026/10/18
+ */
+final class AdapterAnchorHelper {
+
+    private final ConsecutiveScrollerLayout mLayout;
+
+    private final HashMap<RecyclerView, AnchorDataObserver> mObservers = new HashMap<>();
+
+    // 是否记录了锚点
+    private boolean mHasAnchor;
+
+    // 锚点是否已经失效(比如锚点item被删除了)，失效的锚点不能用来恢复位置
+    private boolean mAnchorInvalid;
+
+    // 锚点所在的联动容器子view
+    private View mAnchorChild;
+
+    // 锚点所在的RecyclerView，锚点不在RecyclerView中时为null
+    private RecyclerView mAnchorRecyclerView;
+
+    // 锚点item在adapter中的位置
+    private int mAnchorPosition = RecyclerView.NO_POSITION;
+
+    // 锚点到联动容器可见区域顶部的距离
+    private int mAnchorOffset;
+
+    /**
+     * 等待锚点所在的view完成布局的最大帧数，超过后放弃锚点，避免每一帧都重新校验布局
+     */
+    private static final int MAX_WAIT_LAYOUT_FRAMES = 3;
+
+    // 已经等待锚点布局的次数
+    private int mWaitLayoutCount;
+
+    AdapterAnchorHelper(ConsecutiveScrollerLayout layout) {
+        mLayout = layout;
+    }
+
+    /**
+     * 给联动容器中滑动的RecyclerView注册数据监听，adapter改变时重新注册
+     */
+    void syncObservers() {
+        Iterator<Map.Entry<RecyclerView, AnchorDataObserver>> iterator = mObservers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            AnchorDataObserver observer = iterator.next().getValue();
+            if (observer.mRecyclerView.getParent() == null
+                    || observer.mRecyclerView.getAdapter() != observer.mAdapter
+                    || findConsecutiveChild(observer.mRecyclerView) == null) {
+                observer.unregister();
+                iterator.remove();
+            }
+        }
+
+        int count = mLayout.getChildCount();
+        for (int i = 0; i < count; i++) {
+            View child = mLayout.getChildAt(i);
+            if (!ScrollUtils.isConsecutiveScrollerChild(child)) {
+                continue;
+            }
+            View scrolledView = ScrollUtils.getScrolledView(child);
+            if (scrolledView instanceof RecyclerView && !mObservers.containsKey(scrolledView)) {
+                RecyclerView recyclerView = (RecyclerView) scrolledView;
+                RecyclerView.Adapter adapter = recyclerView.getAdapter();
+                if (adapter != null) {
+                    AnchorDataObserver observer = new AnchorDataObserver(recyclerView, adapter);
+                    adapter.registerAdapterDataObserver(observer);
+                    mObservers.put(recyclerView, observer);
+                }
+            }
+        }
+    }
+
+    /**
+     * 注销所有的数据监听
+     */
+    void release() {
+        for (AnchorDataObserver observer : mObservers.values()) {
+            observer.unregister();
+        }
+        mObservers.clear();
+        clearAnchor();
+    }
+
+    boolean hasAnchor() {
+        return mHasAnchor;
+    }
+
+    /**
+     * 锚点所在的view是否已经按新的数据完成布局。没有完成布局时不能恢复锚点，需要等到下一次布局
+     */
+    boolean isAnchorLaidOut() {
+        if (!mHasAnchor) {
+            return false;
+        }
+        if (mAnchorInvalid || mAnchorChild.getParent() != mLayout || mAnchorChild.getVisibility() == View.GONE) {
+            // 锚点已经不能恢复了，直接尝试恢复，由restoreAnchor清除锚点
+            return true;
+        }
+        if (mAnchorRecyclerView != null && (!mAnchorRecyclerView.isAttachedToWindow() || !mAnchorRecyclerView.isShown())) {
+            // RecyclerView不在窗口中或者没有显示(比如在不显示的ViewPager页面中)，它不会完成布局，锚点不能恢复
+            mAnchorInvalid = true;
+            return true;
+        }
+        boolean isLaidOut;
+        if (mAnchorRecyclerView != null) {
+            isLaidOut = !mAnchorRecyclerView.isLayoutRequested() && !mAnchorRecyclerView.hasPendingAdapterUpdates();
+        } else {
+            isLaidOut = !mAnchorChild.isLayoutRequested();
+        }
+        if (!isLaidOut && ++mWaitLayoutCount > MAX_WAIT_LAYOUT_FRAMES) {
+            // 等待了几帧还没有完成布局，放弃锚点
+            mAnchorInvalid = true;
+            return true;
+        }
+        return isLaidOut;
+    }
+
+    View getAnchorChild() {
+        return mAnchorChild;
+    }
+
+    void clearAnchor() {
+        mHasAnchor = false;
+        mAnchorInvalid = false;
+        mAnchorChild = null;
+        mAnchorRecyclerView = null;
+        mAnchorPosition = RecyclerView.NO_POSITION;
+        mWaitLayoutCount = 0;
+    }
+
+    /**
+     * 按记录的锚点恢复显示位置
+     *
+     * @return 是否恢复成功，锚点失效或者找不到锚点view时返回false
+     */
+    boolean restoreAnchor() {
+        if (!mHasAnchor) {
+            return false;
+        }
+
+        View anchorView = null;
+        if (!mAnchorInvalid && mAnchorChild.getParent() == mLayout && mAnchorChild.getVisibility() != View.GONE) {
+            if (mAnchorRecyclerView == null) {
+                anchorView = mAnchorChild;
+            } else if (mAnchorPosition != RecyclerView.NO_POSITION
+                    && mAnchorRecyclerView.getLayoutManager() != null) {
+                anchorView = mAnchorRecyclerView.getLayoutManager().findViewByPosition(mAnchorPosition);
+            }
+        }
+
+        int anchorOffset = mAnchorOffset;
+        clearAnchor();
+
+        if (anchorView == null) {
+            return false;
+        }
+
+        int offset = getOffsetInLayout(anchorView);
+        if (offset == Integer.MIN_VALUE) {
+            return false;
+        }
+
+        mLayout.scrollAnchorBy(offset - anchorOffset);
+        return true;
+    }
+
+    /**
+     * 在数据变化前记录锚点，同一次布局之前只记录一次
+     */
+    private void captureAnchor() {
+        if (mHasAnchor) {
+            return;
+        }
+
+        View firstView = mLayout.findFirstVisibleView();
+        if (firstView == null) {
+            return;
+        }
+
+        mHasAnchor = true;
+        mAnchorInvalid = false;
+        mWaitLayoutCount = 0;
+        mAnchorChild = firstView;
+        mAnchorRecyclerView = null;
+        mAnchorPosition = RecyclerView.NO_POSITION;
+        mAnchorOffset = firstView.getTop() - mLayout.getScrollY();
+
+        View scrolledView = ScrollUtils.getScrolledView(firstView);
+        if (scrolledView instanceof RecyclerView) {
+            // 锚点取RecyclerView中第一个在可见区域内的item
+            RecyclerView recyclerView = (RecyclerView) scrolledView;
+            View itemView = findFirstVisibleItem(recyclerView);
+            if (itemView != null) {
+                int position = recyclerView.getChildAdapterPosition(itemView);
+                if (position != RecyclerView.NO_POSITION) {
+                    mAnchorRecyclerView = recyclerView;
+                    mAnchorPosition = position;
+                    mAnchorOffset = getOffsetInLayout(itemView);
+                }
+            }
+        }
+
+        mLayout.onAnchorCaptured(firstView);
+    }
+
+    /**
+     * 返回RecyclerView中第一个在联动容器可见区域内的item
+     */
+    private View findFirstVisibleItem(RecyclerView recyclerView) {
+        int top = mLayout.getPaddingTop();
+        int count = recyclerView.getChildCount();
+        for (int i = 0; i < count; i++) {
+            View itemView = recyclerView.getChildAt(i);
+            int offset = getOffsetInLayout(itemView);
+            if (offset != Integer.MIN_VALUE && offset + itemView.getHeight() > top) {
+                return itemView;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * RecyclerView中从positionStart开始的item改变时，是否可能改变当前显示位置。
+     * 改变的item都在第一个可见item及它后面时，可见内容的位置不会移动，不需要记录锚点
+     */
+    private boolean isChangeAboveAnchor(RecyclerView recyclerView, int positionStart) {
+        View child = findConsecutiveChild(recyclerView);
+        View firstView = mLayout.findFirstVisibleView();
+        if (child == null || firstView == null) {
+            return false;
+        }
+        if (child != firstView) {
+            return mLayout.indexOfChild(child) < mLayout.indexOfChild(firstView);
+        }
+        View itemView = findFirstVisibleItem(recyclerView);
+        if (itemView == null) {
+            return true;
+        }
+        int position = recyclerView.getChildAdapterPosition(itemView);
+        return position == RecyclerView.NO_POSITION || positionStart < position;
+    }
+
+    /**
+     * 获取view(联动容器的下级view)的布局位置到联动容器可见区域顶部的距离，不包括TranslationY。
+     *
+     * @return 如果view不在联动容器中，返回Integer.MIN_VALUE
+     */
+    private int getOffsetInLayout(View view) {
+        int offset = 0;
+        View v = view;
+        while (v != mLayout) {
+            offset += v.getTop();
+            ViewParent parent = v.getParent();
+            if (!(parent instanceof View)) {
+                return Integer.MIN_VALUE;
+            }
+            v = (View) parent;
+            offset -= v.getScrollY();
+        }
+        return offset;
+    }
+
+    /**
+     * 找到RecyclerView所在的联动容器子view
+     */
+    private View findConsecutiveChild(View view) {
+        View v = view;
+        while (v != null) {
+            ViewParent parent = v.getParent();
+            if (parent == mLayout) {
+                return v;
+            }
+            v = parent instanceof View ? (View) parent : null;
+        }
+        return null;
+    }
+
+    private final class AnchorDataObserver extends RecyclerView.AdapterDataObserver {
+
+        final RecyclerView mRecyclerView;
+        final RecyclerView.Adapter mAdapter;
+
+        AnchorDataObserver(RecyclerView recyclerView, RecyclerView.Adapter adapter) {
+            mRecyclerView = recyclerView;
+            mAdapter = adapter;
+        }
+
+        void unregister() {
+            mAdapter.unregisterAdapterDataObserver(this);
+        }
+
+        private boolean isAnchor() {
+            return mHasAnchor && mAnchorRecyclerView == mRecyclerView;
+        }
+
+        @Override
+        public void onChanged() {
+            captureAnchor();
+            if (isAnchor()) {
+                // 不知道数据怎么变化的，锚点item的位置无法确定
+                mAnchorInvalid = true;
+            }
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            if (isChangeAboveAnchor(mRecyclerView, positionStart)) {
+                captureAnchor();
+            }
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            if (isChangeAboveAnchor(mRecyclerView, positionStart)) {
+                captureAnchor();
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            captureAnchor();
+            if (isAnchor() && positionStart <= mAnchorPosition) {
+                mAnchorPosition += itemCount;
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            captureAnchor();
+            if (isAnchor()) {
+                if (positionStart + itemCount <= mAnchorPosition) {
+                    mAnchorPosition -= itemCount;
+                } else if (positionStart <= mAnchorPosition) {
+                    // 锚点item被删除了
+                    mAnchorInvalid = true;
+                }
+            }
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            captureAnchor();
+            if (isAnchor()) {
+                if (mAnchorPosition >= fromPosition && mAnchorPosition < fromPosition + itemCount) {
+                    mAnchorPosition += toPosition - fromPosition;
+                } else {
+                    if (fromPosition < mAnchorPosition) {
+                        mAnchorPosition -= itemCount;
+                    }
+                    if (toPosition <= mAnchorPosition) {
+                        mAnchorPosition += itemCount;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -9,23 +9,29 @@ import android.graphics.Canvas;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.MessageQueue;
 import android.util.AttributeSet;
+import android.util.SparseIntArray;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
 import android.view.animation.AnimationUtils;
 import android.view.animation.Interpolator;
-import android.widget.AbsListView;
+import android.webkit.WebView;
 import android.widget.EdgeEffect;
 import android.widget.OverScroller;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.view.NestedScrollingChild2;
+import androidx.core.view.NestedScrollingChild3;
 import androidx.core.view.NestedScrollingChildHelper;
-import androidx.core.view.NestedScrollingParent2;
+import androidx.core.view.NestedScrollingParent;
+import androidx.core.view.NestedScrollingParent3;
 import androidx.core.view.NestedScrollingParentHelper;
 import androidx.core.view.ScrollingView;
 import androidx.core.view.ViewCompat;
@@ -33,6 +39,7 @@ import androidx.core.widget.EdgeEffectCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 
@@ -48,7 +55,7 @@ import java.util.List;
  * 2. 优化Fling逻辑 (Optimized Fling)
  * 3. 规范命名 (Standardized Naming)
  */
-public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingView, NestedScrollingParent2, NestedScrollingChild2 {
+public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingView, NestedScrollingParent3, NestedScrollingChild3 {
 
     private final String TAG = this.getClass().getSimpleName();
 
@@ -82,11 +89,28 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
     /**
      * 越界回弹动画时长
      */
-    protected int mReboundDuration = 300;
+    protected int mReboundDuration = DefaultScrollPhysics.DEFAULT_REBOUND_DURATION;
     protected int mCurrentVelocity;
     protected Interpolator mReboundInterpolator;
+
+    /**
+     * 滑动手感参数
+     */
+    private ScrollPhysics mScrollPhysics;
+
+    /**
+     * 上一次从ScrollPhysics读取的回弹时长和插值器。子类自己修改了mReboundDuration或mReboundInterpolator时，
+     * 设置新的手感不会覆盖子类设置的值
+     */
+    private int mPhysicsReboundDuration = DefaultScrollPhysics.DEFAULT_REBOUND_DURATION;
+    private Interpolator mPhysicsReboundInterpolator;
     protected ValueAnimator mReboundAnimator;
     protected Runnable mAnimationRunnable;
+
+    /**
+     * @deprecated 越界回弹的惯性滑动改为由Choreographer驱动，不再使用Handler。保留这个字段只为了兼容以前的子类。
+     */
+    @Deprecated
     protected Handler mHandler = new Handler(Looper.getMainLooper());
 
     /**
@@ -96,6 +120,31 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
      */
     private int mSecondScrollY;
 
+    /**
+     * mSecondScrollY是否和子view的滑动位置一致。子view的布局改变后失效，重新计算mSecondScrollY后恢复。
+     * 作为上级ConsecutiveScrollerLayout的子view时，上级容器通过它读取滑动偏移量，不需要递归计算所有下级view。
+     */
+    private boolean mSecondScrollYValid;
+
+    /**
+     * 子view的内容滑动是否都能被监听到。子view的内容不是由联动容器滑动时(比如app直接调用RecyclerView.scrollBy)，
+     * 需要通过监听让mSecondScrollY失效。有不能监听的可滑动子view时，getNestedScrollOffset每次都重新计算。
+     */
+    private boolean mSecondScrollYObservable;
+
+    // 是否正在由联动容器滑动子view的内容
+    private boolean mDispatchingChildScroll;
+
+    // 监听滑动的子view中的RecyclerView
+    private final List<RecyclerView> mObservedScrolledViews = new ArrayList<>();
+
+    private final RecyclerView.OnScrollListener mScrolledViewScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            onChildContentScrolled(dy);
+        }
+    };
+
     /**
      * 联动容器可滚动的范围
      * Scrollable range of the container.
@@ -107,6 +156,13 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
      */
     private OverScroller mScroller;
 
+    /**
+     * 按子view的fling速度模拟子view自己的fling，用于在子view fling到边界时获取它剩余的速度，
+     * 让联动容器接着这个速度继续fling。
+     * Mirrors the fling of a nested child, so its remaining velocity can be handed off at the edge.
+     */
+    private OverScroller mChildFlingScroller;
+
     /**
      * VelocityTracker
      */
@@ -162,6 +218,16 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
     private final int[] mScrollOffset = new int[2];
     private final int[] mScrollConsumed = new int[2];
 
+    /**
+     * 分发滑动给上级view时，上级view消费的距离
+     */
+    private final int[] mNestedScrollConsumed = new int[2];
+
+    /**
+     * dispatchScroll过程中上级view消费的滑动距离，这部分距离不能再次分发给上级view
+     */
+    private int mNestedConsumedY;
+
     private View mScrollToTopView;
     private int mAdjust;
 
@@ -171,9 +237,24 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
     private int mScrollToIndex = -1;
 
     /**
-     * 滑动到指定view，平滑滑动时，每次滑动的距离
+     * 滑动到指定view，平滑滑动时，每个时间单位(SMOOTH_SCROLL_FRAME_INTERVAL)滑动的距离
      */
-    private int mSmoothScrollOffset = 0;
+    private float mSmoothScrollOffset = 0;
+
+    /**
+     * 平滑滑动到指定view时，上一次滑动的帧时间。滑动距离按两帧之间的时间计算，使滑动速度与屏幕刷新率无关
+     */
+    private long mSmoothScrollLastTime;
+
+    /**
+     * 平滑滑动到指定view时，不足1像素的滑动距离，留到下一帧
+     */
+    private float mSmoothScrollRemainder;
+
+    /**
+     * 平滑滑动速度的时间单位(毫秒)，以60Hz屏幕的一帧为单位
+     */
+    private static final float SMOOTH_SCROLL_FRAME_INTERVAL = 1000f / 60;
 
     private int mScrollToIndexWithOffset = 0;
 
@@ -232,11 +313,218 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
      * 保存当前吸顶的view(常驻吸顶模式中，正在吸顶的view可能有多个)
      */
     private final List<View> mCurrentStickyViews = new ArrayList<>();
-    // 临时保存吸顶的view，用于判断吸顶view是否改变了
-    private final List<View> mTempStickyViews = new ArrayList<>();
+    // 正在吸顶的view在mStickyChildren中的位置
+    private final BitSet mCurrentStickyBits = new BitSet();
+    // 临时保存吸顶的view的位置，用于判断吸顶view是否改变了
+    private final BitSet mTempStickyBits = new BitSet();
+
+    /**
+     * 所有的吸顶子View(非GONE)，按子view的顺序排列。在布局之后重新计算
+     */
+    private final List<View> mStickyChildren = new ArrayList<>();
+    private final List<View> mTempStickyChildren = new ArrayList<>();
+
+    /**
+     * mStickyTops[i]为mStickyChildren中第i个及其后面的吸顶view中，(top - 吸顶偏移量)的最小值。
+     * 它是一个递增的数组，用于二分查找需要吸顶的view。
+     */
+    private int[] mStickyTops = new int[0];
+
+    /**
+     * 常驻吸顶模式下，mPermanentHeights[i]为mStickyChildren中第i个吸顶view前面所有非下沉吸顶view的高度之和
+     */
+    private int[] mPermanentHeights = new int[0];
+
+    /**
+     * 常驻吸顶模式下，吸顶view堆叠起来后完全遮挡住的区域(内容坐标)。
+     * 被这个区域遮挡的子view不需要绘制，避免过度绘制。mCoveredTop >= mCoveredBottom时表示没有遮挡区域
+     */
+    private int mCoveredLeft;
+    private int mCoveredTop;
+    private int mCoveredRight;
+    private int mCoveredBottom;
+
+    /**
+     * mStickyChildren和mStickyTops需要重新计算
+     */
+    private boolean mStickyChildrenInvalid = true;
+
+    /**
+     * 是否使用吸顶图层。开启后，在支持的设备上(Android 10及以上并且开启了硬件加速)，非下沉的吸顶view不再通过TranslationY移动，
+     * 而是录制到RenderNode中，在dispatchDraw里绘制到吸顶的位置。吸顶view被触摸时才会移动到吸顶的位置。
+     */
+    private boolean mStickyLayerEnabled;
+
+    /**
+     * 正在吸顶的view的图层
+     */
+    private final HashMap<View, StickyLayer> mStickyLayers = new HashMap<>();
+
+    /**
+     * RecycledViewPool默认每种viewType缓存的ViewHolder数量
+     */
+    private static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
+    /**
+     * 所有连续滑动的RecyclerView子view共用的RecycledViewPool，没有开启时为null
+     */
+    private RecyclerView.RecycledViewPool mSharedRecycledViewPool;
+
+    /**
+     * 共用的RecycledViewPool中每种viewType设置的缓存数量
+     */
+    private final SparseIntArray mSharedPoolCapacities = new SparseIntArray();
+
+    /**
+     * 使用共用RecycledViewPool的RecyclerView子view原来的RecycledViewPool，不再共用时恢复
+     */
+    private final HashMap<RecyclerView, RecyclerView.RecycledViewPool> mOriginalRecycledViewPools = new HashMap<>();
+    private final SparseIntArray mTempViewTypeCounts = new SparseIntArray();
+
+    /**
+     * 最近一次预留了缓存数量的即将显示的RecyclerView
+     */
+    private RecyclerView mPrefetchRecyclerView;
+
+    /**
+     * 绘制时可见区域上下额外保留的距离，在这个范围外的子view不绘制
+     */
+    private final int mDrawCullingMargin = Util.dp2px(50);
 
     private int mOldScrollY = 0;
 
+    /**
+     * 自己所在的上级ConsecutiveScrollerLayout容器的子view(自己或者自己的上级view)，不在容器中时为null。
+     * 在添加到窗口时查找，触摸事件中直接读取它的LayoutParams，不需要每次都遍历上级view。
+     */
+    private View mConsecutiveParentChild;
+
+    /**
+     * 开启了item高度缓存的子view和它滑动过的RecyclerView(比如ViewPager的多个页面)。
+     * 缓存保存在RecyclerView的tag中，只在子view关闭isExactScrollOffset或者被移除时关闭，联动容器重新添加到窗口时不需要重新测量
+     */
+    private final HashMap<View, List<RecyclerView>> mItemHeightCacheViews = new HashMap<>();
+
+    /**
+     * 子view中滑动的WebView，在绘制前检查它们的网页内容高度是否改变
+     */
+    private final List<WebViewHelper> mWebViewHelpers = new ArrayList<>();
+    private final List<WebViewHelper> mTempWebViewHelpers = new ArrayList<>();
+
+    /**
+     * 监听RecyclerView的数据变化，在数据变化后按锚点恢复显示位置
+     */
+    private final AdapterAnchorHelper mAdapterAnchorHelper = new AdapterAnchorHelper(this);
+
+    /**
+     * 没有需要校验的子view
+     */
+    private static final int NO_DIRTY_CHILD = Integer.MAX_VALUE;
+
+    /**
+     * 布局发生变化的子view中最小的位置。校验子view内容的滚动位置时，只需要处理这个位置及以后的子view
+     */
+    private int mFirstDirtyChildIndex = NO_DIRTY_CHILD;
+
+    /**
+     * 是否已经安排了下一帧的布局校验
+     */
+    private boolean mLayoutChangeCheckScheduled;
+
+    /**
+     * 下一帧的布局校验是否强制执行
+     */
+    private boolean mLayoutChangeCheckForce;
+
+    /**
+     * 监听子view的布局变化，标记需要校验的子view
+     */
+    private final OnLayoutChangeListener mChildLayoutChangeListener = new OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                   int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            if (top != oldTop || bottom != oldBottom) {
+                markChildDirty(v);
+                if (!isInLayout()) {
+                    // 不是联动容器布局引起的变化，在下一帧里校验
+                    scheduleLayoutChangeCheck(false);
+                }
+            }
+        }
+    };
+
+    /**
+     * 监听实现了IConsecutiveScroller2的子view的当前滑动view和滑动数值的变化，标记需要校验的子view，在下一帧里校验
+     */
+    private final IConsecutiveScroller2.OnScrollerChangeListener mScrollerChangeListener
+            = new IConsecutiveScroller2.OnScrollerChangeListener() {
+        @Override
+        public void onCurrentScrollerChanged(View scroller, View currentScroller) {
+            onChildScrollerChanged(scroller);
+        }
+
+        @Override
+        public void onScrollMetricsChanged(View scroller) {
+            onChildScrollerChanged(scroller);
+        }
+    };
+
+    /**
+     * 在下一帧里校验布局，多次调用只会执行一次。如果布局还没有完成，就等到布局完成后的下一帧。
+     */
+    private final Runnable mLayoutChangeCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (isLayoutRequested()) {
+                ViewCompat.postOnAnimation(ConsecutiveScrollerLayout.this, this);
+                return;
+            }
+            mLayoutChangeCheckScheduled = false;
+            boolean isForce = mLayoutChangeCheckForce;
+            mLayoutChangeCheckForce = false;
+            if (isForce || mFirstDirtyChildIndex != NO_DIRTY_CHILD) {
+                checkLayoutChange(false, isForce);
+            }
+        }
+    };
+
+    /**
+     * 是否已经安排了在主线程空闲时校验子view内容的滚动位置
+     */
+    private boolean mCheckTargetsScrollScheduled;
+
+    /**
+     * 在主线程空闲时校验子view内容的滚动位置，避免在滑动结束的那一帧里同步执行。
+     * 如果正在触摸或者滑动，就继续等待下一次空闲。
+     */
+    private final MessageQueue.IdleHandler mCheckTargetsScrollIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            if (mTouching || !mScroller.isFinished() || mScrollToIndex != -1) {
+                return true;
+            }
+            mCheckTargetsScrollScheduled = false;
+            checkTargetsScroll(false, false);
+            return false;
+        }
+    };
+
+    /**
+     * 在绘制之前更新吸顶view的位置，使吸顶view和内容在同一帧里绘制，并且不会在draw()里修改view的属性而触发额外的重绘
+     */
+    private final ViewTreeObserver.OnPreDrawListener mStickyPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (mOldScrollY != getScrollY()) {
+                mOldScrollY = getScrollY();
+                resetSticky();
+                prepareNextRecyclerView();
+            }
+            checkWebViewContentChange();
+            return true;
+        }
+    };
+
     private final List<View> mViews = new ArrayList<>();
     private int mNestedYOffset = 0;
 
@@ -250,6 +538,11 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
      */
     private OnPermanentStickyChangeListener mOnPermanentStickyChangeListener;
 
+    /**
+     * fling开始时，预告fling会经过和停留的子view
+     */
+    private OnFlingPrefetchListener mOnFlingPrefetchListener;
+
     /**
      * The RecyclerView is not currently scrolling.
      *
@@ -341,12 +634,17 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
             mStickyOffset = a.getDimensionPixelOffset(R.styleable.ConsecutiveScrollerLayout_stickyOffset, 0);
             mAutoAdjustHeightAtBottomView = a.getBoolean(R.styleable.ConsecutiveScrollerLayout_autoAdjustHeightAtBottomView, false);
             mAdjustHeightOffset = a.getDimensionPixelOffset(R.styleable.ConsecutiveScrollerLayout_adjustHeightOffset, 0);
+            mStickyLayerEnabled = a.getBoolean(R.styleable.ConsecutiveScrollerLayout_stickyLayer, false);
+            if (a.getBoolean(R.styleable.ConsecutiveScrollerLayout_shareRecycledViewPool, false)) {
+                mSharedRecycledViewPool = new RecyclerView.RecycledViewPool();
+            }
         } finally {
             if (a != null) {
                 a.recycle();
             }
         }
         mScroller = new OverScroller(getContext(), sQuinticInterpolator);
+        mChildFlingScroller = new OverScroller(getContext(), sQuinticInterpolator);
         ViewConfiguration viewConfiguration = ViewConfiguration.get(context);
         mMaximumVelocity = viewConfiguration.getScaledMaximumFlingVelocity();
         mMinimumVelocity = viewConfiguration.getScaledMinimumFlingVelocity();
@@ -363,8 +661,7 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
 
         setMotionEventSplittingEnabled(false);
 
-        //越界拖动回弹动画差值器
-        mReboundInterpolator = new OverScrollInterpolator(OverScrollInterpolator.INTERPOLATOR_VISCOUS_FLUID);
+        setScrollPhysics(DefaultScrollPhysics.getDefault());
     }
 
     @Override
@@ -381,12 +678,11 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
             View scrollChild = ScrollUtils.getScrollChild(child);
             disableChildScroll(scrollChild);
             if (scrollChild instanceof IConsecutiveScroller) {
-                List<View> views = ((IConsecutiveScroller) scrollChild).getScrolledViews();
-                if (views != null && !views.isEmpty()) {
-                    int size = views.size();
-                    for (int i = 0; i < size; i++) {
-                        disableChildScroll(views.get(i));
-                    }
+                IConsecutiveScroller scroller = (IConsecutiveScroller) scrollChild;
+                List<View> views = ScrollUtils.getScrolledViewList(scroller);
+                int size = ScrollUtils.getScrolledViewCount(scroller, views);
+                for (int i = 0; i < size; i++) {
+                    disableChildScroll(ScrollUtils.getScrolledViewAt(scroller, views, i));
                 }
             }
         }
@@ -396,6 +692,73 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
         }
     }
 
+    @Override
+    public void onViewAdded(View child) {
+        super.onViewAdded(child);
+        mStickyChildrenInvalid = true;
+        child.addOnLayoutChangeListener(mChildLayoutChangeListener);
+        View scrollChild = ScrollUtils.getScrollChild(child);
+        if (scrollChild instanceof IConsecutiveScroller2) {
+            ((IConsecutiveScroller2) scrollChild).setOnScrollerChangeListener(mScrollerChangeListener);
+        }
+        markChildDirty(child);
+    }
+
+    @Override
+    public void onViewRemoved(View child) {
+        super.onViewRemoved(child);
+        mStickyChildrenInvalid = true;
+        child.removeOnLayoutChangeListener(mChildLayoutChangeListener);
+        View scrollChild = ScrollUtils.getScrollChild(child);
+        if (scrollChild instanceof IConsecutiveScroller2) {
+            ((IConsecutiveScroller2) scrollChild).setOnScrollerChangeListener(null);
+        }
+        releaseItemHeightCache(child);
+        releaseSharedRecycledViewPool(child);
+        StickyLayer layer = mStickyLayers.remove(child);
+        if (layer != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            layer.release();
+        }
+    }
+
+    // 移除子view后它后面的子view位置会改变。移除时子view已经不在联动容器中，需要在移除前标记它的下标
+
+    @Override
+    public void removeView(View view) {
+        markChildDirty(indexOfChild(view));
+        super.removeView(view);
+    }
+
+    @Override
+    public void removeViewInLayout(View view) {
+        markChildDirty(indexOfChild(view));
+        super.removeViewInLayout(view);
+    }
+
+    @Override
+    public void removeViewAt(int index) {
+        markChildDirty(index);
+        super.removeViewAt(index);
+    }
+
+    @Override
+    public void removeViews(int start, int count) {
+        markChildDirty(start);
+        super.removeViews(start, count);
+    }
+
+    @Override
+    public void removeViewsInLayout(int start, int count) {
+        markChildDirty(start);
+        super.removeViewsInLayout(start, count);
+    }
+
+    @Override
+    public void removeAllViewsInLayout() {
+        markChildDirty(0);
+        super.removeAllViewsInLayout();
+    }
+
     /**
      * 禁用子view的一下滑动相关的属性
      *
@@ -408,6 +771,46 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
         ViewCompat.setNestedScrollingEnabled(child, false);
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mConsecutiveParentChild = ScrollUtils.findConsecutiveParentChild(this);
+        getViewTreeObserver().addOnPreDrawListener(mStickyPreDrawListener);
+        mAdapterAnchorHelper.syncObservers();
+        syncItemHeightCaches();
+        syncWebViewHelpers();
+        syncSharedRecycledViewPool();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mConsecutiveParentChild = null;
+        getViewTreeObserver().removeOnPreDrawListener(mStickyPreDrawListener);
+        stopOverScrollBounce();
+        releaseStickyLayers();
+        mAdapterAnchorHelper.release();
+        mWebViewHelpers.clear();
+        for (RecyclerView recyclerView : mObservedScrolledViews) {
+            recyclerView.removeOnScrollListener(mScrolledViewScrollListener);
+        }
+        mObservedScrolledViews.clear();
+        mSecondScrollYObservable = false;
+        if (mCheckTargetsScrollScheduled) {
+            mCheckTargetsScrollScheduled = false;
+            Looper.myQueue().removeIdleHandler(mCheckTargetsScrollIdleHandler);
+        }
+    }
+
+    /**
+     * 父级容器是否是isConsecutive：true。使用添加到窗口时找到的上级容器子view，它的LayoutParams改变时也能正确判断
+     *
+     * @return
+     */
+    private boolean isConsecutiveScrollParent() {
+        return mConsecutiveParentChild != null && ScrollUtils.isConsecutiveScrollerChild(mConsecutiveParentChild);
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         resetScrollToTopView();
@@ -521,6 +924,7 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
 
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        mSecondScrollYValid = false;
         mScreenHeightPixels = getResources().getDisplayMetrics().heightPixels;
         mScrollRange = 0;
         int childTop = getPaddingTop();
@@ -532,6 +936,10 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
         int count = children.size();
         for (int i = 0; i < count; i++) {
             View child = children.get(i);
+            if (child.isLayoutRequested()) {
+                // 子view请求了重新布局，它的内容可能发生了变化
+                markChildDirty(child);
+            }
             int bottom = childTop + child.getMeasuredHeight();
             int left = getChildLeft(child, parentWidth, paddingLeft, paddingRight);
             child.layout(left, childTop, left + child.getMeasuredWidth(), bottom);
@@ -546,10 +954,220 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
             mScrollRange = 0;
         }
 
+        mStickyChildrenInvalid = true;
+        invalidateStickyLayers();
+
         // 布局发生变化，检测滑动位置
         checkLayoutChange(changed, false);
 
         sortViews();
+
+        // 子view的adapter可能改变了，重新注册数据监听
+        mAdapterAnchorHelper.syncObservers();
+        syncItemHeightCaches();
+        syncWebViewHelpers();
+        syncSharedRecycledViewPool();
+    }
+
+    /**
+     * 记录子view中滑动的WebView，已经记录的WebView保留它的内容高度
+     */
+    private void syncWebViewHelpers() {
+        mTempWebViewHelpers.clear();
+        int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            View child = getChildAt(i);
+            if (!ScrollUtils.isConsecutiveScrollerChild(child)) {
+                continue;
+            }
+            View scrolledView = ScrollUtils.getScrolledView(child);
+            if (scrolledView instanceof WebView) {
+                WebViewHelper helper = null;
+                int size = mWebViewHelpers.size();
+                for (int c = 0; c < size; c++) {
+                    WebViewHelper h = mWebViewHelpers.get(c);
+                    if (h.getWebView() == scrolledView && h.getChild() == child) {
+                        helper = h;
+                        break;
+                    }
+                }
+                if (helper == null) {
+                    helper = new WebViewHelper(child, (WebView) scrolledView);
+                    helper.updateScrollRange();
+                }
+                mTempWebViewHelpers.add(helper);
+            }
+        }
+        mWebViewHelpers.clear();
+        mWebViewHelpers.addAll(mTempWebViewHelpers);
+        mTempWebViewHelpers.clear();
+    }
+
+    /**
+     * WebView的网页内容高度改变时(比如网页加载过程中)，在下一帧里校验它和它后面的子view的滚动位置
+     */
+    private void checkWebViewContentChange() {
+        int size = mWebViewHelpers.size();
+        for (int i = 0; i < size; i++) {
+            WebViewHelper helper = mWebViewHelpers.get(i);
+            if (helper.updateScrollRange()) {
+                markChildDirty(helper.getChild());
+                scheduleLayoutChangeCheck(false);
+            }
+        }
+    }
+
+    /**
+     * 给连续滑动的RecyclerView子view设置共用的RecycledViewPool。只处理直接的RecyclerView子view，
+     * ViewPager页面等下级view中的RecyclerView由它们自己的容器管理。
+     */
+    private void syncSharedRecycledViewPool() {
+        if (mSharedRecycledViewPool == null) {
+            return;
+        }
+        int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            View child = getChildAt(i);
+            if (!(child instanceof RecyclerView)) {
+                continue;
+            }
+            if (!ScrollUtils.isConsecutiveScrollerChild(child)) {
+                releaseSharedRecycledViewPool(child);
+                continue;
+            }
+            RecyclerView recyclerView = (RecyclerView) child;
+            RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+            if (pool != mSharedRecycledViewPool) {
+                mOriginalRecycledViewPools.put(recyclerView, pool);
+                recyclerView.setRecycledViewPool(mSharedRecycledViewPool);
+            }
+        }
+    }
+
+    /**
+     * RecyclerView子view不再使用共用的RecycledViewPool，恢复它原来的RecycledViewPool
+     */
+    private void releaseSharedRecycledViewPool(View child) {
+        if (!(child instanceof RecyclerView)) {
+            return;
+        }
+        RecyclerView recyclerView = (RecyclerView) child;
+        RecyclerView.RecycledViewPool pool = mOriginalRecycledViewPools.remove(recyclerView);
+        if (pool != null && mSharedRecycledViewPool != null
+                && recyclerView.getRecycledViewPool() == mSharedRecycledViewPool) {
+            recyclerView.setRecycledViewPool(pool);
+        }
+        if (recyclerView == mPrefetchRecyclerView) {
+            mPrefetchRecyclerView = null;
+        }
+    }
+
+    /**
+     * 在下一个RecyclerView子view滑进显示区域之前，按它第一屏中每种viewType的item数量设置共用RecycledViewPool的缓存数量。
+     * 上面的RecyclerView滑出显示区域时回收的同类型ViewHolder就不会因为缓存已满被丢弃，下一个RecyclerView滑动内容时可以直接复用。
+     * 缓存数量只按下一个RecyclerView的需要设置，之前扩大的其他viewType恢复默认数量，避免缓存数量只增不减。
+     */
+    private void prepareNextRecyclerView() {
+        if (mSharedRecycledViewPool == null) {
+            return;
+        }
+
+        int bottom = getScrollY() + getHeight() - getPaddingBottom();
+        int prefetchBottom = bottom + computeVerticalScrollExtent();
+        RecyclerView next = null;
+        int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE || child.getTop() < bottom) {
+                continue;
+            }
+            if (child.getTop() >= prefetchBottom) {
+                break;
+            }
+            if (child instanceof RecyclerView && ScrollUtils.isConsecutiveScrollerChild(child)
+                    && ((RecyclerView) child).getRecycledViewPool() == mSharedRecycledViewPool) {
+                next = (RecyclerView) child;
+                break;
+            }
+        }
+
+        if (next == null || next == mPrefetchRecyclerView) {
+            return;
+        }
+        mPrefetchRecyclerView = next;
+
+        mTempViewTypeCounts.clear();
+        int childCount = next.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            RecyclerView.ViewHolder holder = next.getChildViewHolder(next.getChildAt(i));
+            if (holder != null) {
+                int viewType = holder.getItemViewType();
+                mTempViewTypeCounts.put(viewType, mTempViewTypeCounts.get(viewType) + 1);
+            }
+        }
+        // 下一个RecyclerView不需要的viewType恢复默认的缓存数量
+        for (int i = mSharedPoolCapacities.size() - 1; i >= 0; i--) {
+            int viewType = mSharedPoolCapacities.keyAt(i);
+            if (mTempViewTypeCounts.indexOfKey(viewType) < 0) {
+                mSharedPoolCapacities.removeAt(i);
+                mSharedRecycledViewPool.setMaxRecycledViews(viewType, DEFAULT_MAX_RECYCLED_VIEWS);
+            }
+        }
+        int size = mTempViewTypeCounts.size();
+        for (int i = 0; i < size; i++) {
+            int viewType = mTempViewTypeCounts.keyAt(i);
+            int capacity = Math.max(mTempViewTypeCounts.valueAt(i), DEFAULT_MAX_RECYCLED_VIEWS);
+            if (capacity != mSharedPoolCapacities.get(viewType, DEFAULT_MAX_RECYCLED_VIEWS)) {
+                mSharedRecycledViewPool.setMaxRecycledViews(viewType, capacity);
+            }
+            if (capacity > DEFAULT_MAX_RECYCLED_VIEWS) {
+                mSharedPoolCapacities.put(viewType, capacity);
+            } else {
+                mSharedPoolCapacities.delete(viewType);
+            }
+        }
+        mTempViewTypeCounts.clear();
+    }
+
+    /**
+     * 给设置了isExactScrollOffset的子view中滑动的RecyclerView开启item高度缓存
+     */
+    private void syncItemHeightCaches() {
+        int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            View child = getChildAt(i);
+            ViewGroup.LayoutParams lp = child.getLayoutParams();
+            if (!(lp instanceof LayoutParams) || !((LayoutParams) lp).isExactScrollOffset) {
+                releaseItemHeightCache(child);
+                continue;
+            }
+            View scrolledView = ScrollUtils.getScrolledView(child);
+            if (scrolledView instanceof RecyclerView) {
+                // 子view当前滑动的RecyclerView改变了(比如ViewPager切换了页面)时保留原来的RecyclerView的缓存，切换回来时可以继续使用
+                RecyclerView recyclerView = (RecyclerView) scrolledView;
+                List<RecyclerView> recyclerViews = mItemHeightCacheViews.get(child);
+                if (recyclerViews == null) {
+                    recyclerViews = new ArrayList<>();
+                    mItemHeightCacheViews.put(child, recyclerViews);
+                }
+                if (!recyclerViews.contains(recyclerView)) {
+                    ItemHeightCache.attach(recyclerView);
+                    recyclerViews.add(recyclerView);
+                }
+            }
+        }
+    }
+
+    /**
+     * 关闭子view的item高度缓存
+     */
+    private void releaseItemHeightCache(View child) {
+        List<RecyclerView> recyclerViews = mItemHeightCacheViews.remove(child);
+        if (recyclerViews != null) {
+            for (RecyclerView recyclerView : recyclerViews) {
+                ItemHeightCache.detach(recyclerView);
+            }
+        }
     }
 
     @Override
@@ -654,13 +1272,19 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
 
         switch (ev.getActionMasked()) {
             case MotionEvent.ACTION_DOWN:
+                // 触摸到图层中的吸顶view，把吸顶view移动到吸顶的位置，让它能接收触摸事件
+                detachTouchedStickyLayer((int) ev.getX() + getScrollX(), (int) ev.getY() + getScrollY());
+
                 mCurrentVelocity = 0;
                 mIsBrake = mScrollState == SCROLL_STATE_SETTLING;
 
                 // 停止滑动
                 stopScroll();
                 mTouching = true;
-                checkTargetsScroll(false, false);
+                // 只在可见的子view滚动位置不正确时才同步校验，其他的子view在空闲时校验
+                if (!isVisibleTargetsScrollInSync()) {
+                    checkTargetsScroll(false, true);
+                }
                 mScrollOrientation = SCROLL_NONE;
                 mActivePointerId = ev.getPointerId(actionIndex);
                 mFixedYMap.put(mActivePointerId, ev.getY(actionIndex));
@@ -785,7 +1409,7 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
                         ev.setAction(MotionEvent.ACTION_CANCEL);
                     }
 
-                    if (mScrollOrientation != SCROLL_VERTICAL && !ScrollUtils.isConsecutiveScrollParent(this)
+                    if (mScrollOrientation != SCROLL_VERTICAL && !isConsecutiveScrollParent()
                             && isIntercept(ev) && Math.abs(yVelocity) >= mMinimumVelocity) {
                         if (mScrollOrientation == SCROLL_NONE || !canScrollHorizontallyChild) {
                             fling(-mAdjustYVelocity);
@@ -856,7 +1480,7 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
 
-        if (ScrollUtils.isConsecutiveScrollParent(this) // 如果父级容器设置isConsecutive：true，则自己不消费滑动
+        if (isConsecutiveScrollParent() // 如果父级容器设置isConsecutive：true，则自己不消费滑动
                 || mIsTouchNotTriggerScrollStick) { // 触摸正在吸顶的view，不消费滑动
             return super.onTouchEvent(ev);
         }
@@ -910,6 +1534,7 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
                     }
                 }
 
+                mNestedConsumedY = 0;
                 if (mScrollState == SCROLL_STATE_DRAGGING) {
                     dispatchScroll(deltaY);
                 }
@@ -920,13 +1545,17 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
                     getParent().requestDisallowInterceptTouchEvent(true);
                 }
 
-                deltaY = deltaY - scrolledDeltaY;
-                if (dispatchNestedScroll(0, scrolledDeltaY, 0, deltaY, mScrollOffset,
-                        ViewCompat.TYPE_TOUCH)) {
-                    deltaY += mScrollOffset[1];
+                // 越界时已经分发给上级view并且被消费的距离不再分发
+                deltaY = deltaY - scrolledDeltaY - mNestedConsumedY;
+                final int nestedConsumed = dispatchNestedScrollInternal(scrolledDeltaY, deltaY, mScrollOffset,
+                        ViewCompat.TYPE_TOUCH);
+                deltaY -= nestedConsumed;
+                if (mScrollOffset[1] != 0) {
                     mTouchY -= mScrollOffset[1];
                     mNestedYOffset += mScrollOffset[1];
                     ev.offsetLocation(0, mScrollOffset[1]);
+                }
+                if (nestedConsumed != 0 || mScrollOffset[1] != 0) {
                     getParent().requestDisallowInterceptTouchEvent(true);
                 }
 
@@ -1007,27 +1636,102 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
     }
 
     @Override
-    protected int getChildDrawingOrder(int childCount, int drawingPosition) {
-        if (mViews.size() > drawingPosition) {
-            int index = indexOfChild(mViews.get(drawingPosition));
-            if (index != -1) {
-                return index;
+    protected int getChildDrawingOrder(int childCount, int drawingPosition) {
+        if (mViews.size() > drawingPosition) {
+            int index = indexOfChild(mViews.get(drawingPosition));
+            if (index != -1) {
+                return index;
+            }
+        }
+        return super.getChildDrawingOrder(childCount, drawingPosition);
+    }
+
+    int getDrawingPosition(View child) {
+        return mViews.indexOf(child);
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        StickyLayer layer = mStickyLayers.get(child);
+        if (layer != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && !layer.isDetached()) {
+            // 吸顶view由吸顶图层绘制
+            return false;
+        }
+
+        // 跳过可见区域以外的子view。吸顶和下沉的吸顶view通过TranslationY移动到了吸顶的位置，用getY()判断也会在可见区域内
+        if (!isChildInDrawWindow(child)) {
+            return false;
+        }
+
+        // 跳过被常驻吸顶view遮挡的内容。非下沉的吸顶view绘制在内容的上面，不会被遮挡
+        if (mCoveredTop < mCoveredBottom && !(isStickyView(child) && !isSink(child))
+                && child.getLeft() >= mCoveredLeft && child.getRight() <= mCoveredRight) {
+            float top = child.getY();
+            float bottom = top + child.getHeight();
+            if (top >= mCoveredTop && bottom <= mCoveredBottom) {
+                // 完全被遮挡
+                return false;
+            }
+
+            if (top < mCoveredBottom && bottom > mCoveredTop && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                // 部分被遮挡，裁剪掉被遮挡的部分
+                int saveCount = canvas.save();
+                canvas.clipOutRect(mCoveredLeft, mCoveredTop, mCoveredRight, mCoveredBottom);
+                boolean more = super.drawChild(canvas, child, drawingTime);
+                canvas.restoreToCount(saveCount);
+                return more;
+            }
+        }
+        return super.drawChild(canvas, child, drawingTime);
+    }
+
+    /**
+     * 子view是否在需要绘制的区域内(可见区域加上下mDrawCullingMargin的范围)
+     *
+     * @param child
+     * @return
+     */
+    private boolean isChildInDrawWindow(View child) {
+        if (child.getAnimation() != null) {
+            // 正在执行动画的view可能绘制在布局以外的地方
+            return true;
+        }
+        int scrollY = getScrollY();
+        float top = child.getY();
+        return top < scrollY + getHeight() + mDrawCullingMargin
+                && top + child.getHeight() > scrollY - mDrawCullingMargin;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+
+        // 在内容的上面绘制吸顶图层
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && !mStickyLayers.isEmpty()) {
+            int count = mStickyChildren.size();
+            for (int i = 0; i < count; i++) {
+                StickyLayer layer = mStickyLayers.get(mStickyChildren.get(i));
+                if (layer != null && !layer.isDetached()) {
+                    layer.draw(canvas);
+                }
             }
         }
-        return super.getChildDrawingOrder(childCount, drawingPosition);
     }
 
-    int getDrawingPosition(View child) {
-        return mViews.indexOf(child);
+    @Override
+    public void onDescendantInvalidated(@NonNull View child, @NonNull View target) {
+        super.onDescendantInvalidated(child, target);
+        StickyLayer layer = mStickyLayers.get(child);
+        if (layer != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && !layer.isDetached()) {
+            // 吸顶view自己刷新了，重新录制吸顶图层
+            layer.invalidate();
+            invalidate();
+        }
     }
 
     @Override
     public void draw(Canvas canvas) {
         super.draw(canvas);
-        if (mOldScrollY != getScrollY()) {
-            mOldScrollY = getScrollY();
-            resetSticky();
-        }
 
         // 绘制边界阴影
         if (mEdgeGlowTop != null) {
@@ -1108,7 +1812,47 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
             startNestedScroll(ViewCompat.SCROLL_AXIS_VERTICAL, ViewCompat.TYPE_NON_TOUCH);
             setScrollState(SCROLL_STATE_SETTLING);
             mLastScrollerY = mSecondScrollY;
-            invalidate();
+            dispatchFlingPrefetch(mSecondScrollY, mScroller.getFinalY());
+            ViewCompat.postInvalidateOnAnimation(this);
+        }
+    }
+
+    /**
+     * 根据fling的预测停止位置，通知监听器fling会经过和停留的子view，以及在子view内容中经过的范围。
+     * 联动容器的内容可以看成所有子view的内容依次连接起来，每个子view占用的长度是它的内容高度，
+     * 以此把总偏移量映射到子view内部的偏移量。
+     *
+     * @param startY fling开始时的总偏移量
+     * @param finalY fling预测停止时的总偏移量
+     */
+    private void dispatchFlingPrefetch(int startY, int finalY) {
+        if (mOnFlingPrefetchListener == null) {
+            return;
+        }
+
+        int extent = computeVerticalScrollExtent();
+        int maxY = Math.max(0, computeVerticalScrollRange() - extent);
+        finalY = Math.max(0, Math.min(finalY, maxY));
+
+        // 在fling过程中，显示区域扫过的内容范围
+        int from = Math.min(startY, finalY);
+        int to = Math.max(startY, finalY) + extent;
+
+        int childTop = 0;
+        int count = getChildCount();
+        for (int i = 0; i < count && childTop < to; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+            int childBottom = childTop + getChildScrollRange(child);
+            if (childBottom > from) {
+                boolean isLanding = childBottom > finalY && childTop < finalY + extent;
+                mOnFlingPrefetchListener.onFlingPrefetch(child, i,
+                        Math.max(from, childTop) - childTop,
+                        Math.min(to, childBottom) - childTop, isLanding);
+            }
+            childTop = childBottom;
         }
     }
 
@@ -1177,20 +1921,33 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
     public void computeScroll() {
         if (mScrollToIndex != -1 && mSmoothScrollOffset != 0) {
 
-            if (mSmoothScrollOffset > 0 && mSmoothScrollOffset < 200) {
-                // 逐渐加速
-                mSmoothScrollOffset += 5;
-            }
+            // 同一帧内多次调用computeScroll时，frames为0，不重复滑动
+            long now = AnimationUtils.currentAnimationTimeMillis();
+            float frames = (now - mSmoothScrollLastTime) / SMOOTH_SCROLL_FRAME_INTERVAL;
+            if (frames > 0) {
+                mSmoothScrollLastTime = now;
 
-            if (mSmoothScrollOffset < 0 && mSmoothScrollOffset > -200) {
                 // 逐渐加速
-                mSmoothScrollOffset -= 5;
+                int maxOffset = mScrollPhysics.getSmoothScrollMaxOffset();
+                float acceleration = mScrollPhysics.getSmoothScrollAcceleration() * frames;
+                if (mSmoothScrollOffset > 0) {
+                    mSmoothScrollOffset = Math.min(mSmoothScrollOffset + acceleration, maxOffset);
+                } else {
+                    mSmoothScrollOffset = Math.max(mSmoothScrollOffset - acceleration, -maxOffset);
+                }
+
+                float distance = mSmoothScrollOffset * frames + mSmoothScrollRemainder;
+                int offset = (int) distance;
+                mSmoothScrollRemainder = distance - offset;
+
+                // 正在平滑滑动到某个子view
+                dispatchScroll(offset);
+                mCycleCount++;
             }
 
-            // 正在平滑滑动到某个子view
-            dispatchScroll(mSmoothScrollOffset);
-            mCycleCount++;
-            invalidate();
+            if (mScrollToIndex != -1) {
+                ViewCompat.postInvalidateOnAnimation(this);
+            }
         } else {
 
             // fling
@@ -1211,9 +1968,8 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
                 final int scrolledByMe = mSecondScrollY - oldScrollY;
                 unconsumed -= scrolledByMe;
                 if ((unconsumed < 0 && isScrollTop()) || (unconsumed > 0 && isScrollBottom())) {
-                    dispatchNestedScroll(0, scrolledByMe, 0, unconsumed, mScrollOffset,
+                    unconsumed -= dispatchNestedScrollInternal(scrolledByMe, unconsumed, mScrollOffset,
                             ViewCompat.TYPE_NON_TOUCH);
-                    unconsumed += mScrollOffset[1];
                 }
 
                 // 判断滑动方向和是否滑动到边界
@@ -1246,13 +2002,13 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
                     }
                 }
 
-                invalidate();
+                ViewCompat.postInvalidateOnAnimation(this);
             }
 
             if (mScrollState == SCROLL_STATE_SETTLING && mScroller.isFinished()) {
                 // 滚动结束，校验子view内容的滚动位置
                 stopNestedScroll(ViewCompat.TYPE_NON_TOUCH);
-                checkTargetsScroll(false, false);
+                scheduleCheckTargetsScroll();
                 setScrollState(SCROLL_STATE_IDLE);
                 checkSnap();
             }
@@ -1272,53 +2028,114 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
                 mReboundAnimator.cancel();//会触发 cancel 和 end 调用
                 mReboundAnimator = null;
             }
-            mAnimationRunnable = null;
+            stopOverScrollBounce();
         }
         return mReboundAnimator != null;
     }
 
-    protected class BounceRunnable implements Runnable {
-        int mFrame = 0;
-        int mFrameDelay = 10;
+    /**
+     * 停止越界回弹的惯性滑动
+     */
+    private void stopOverScrollBounce() {
+        if (mAnimationRunnable != null) {
+            if (mAnimationRunnable instanceof Choreographer.FrameCallback) {
+                Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) mAnimationRunnable);
+            }
+            mHandler.removeCallbacks(mAnimationRunnable);
+            mAnimationRunnable = null;
+        }
+    }
+
+    /**
+     * fling越界后的惯性滑动，由Choreographer在每一帧的vsync时驱动。
+     * 滑动距离和速度衰减都按帧的时间计算，使回弹效果在不同刷新率的屏幕上保持一致。
+     * 仍然实现Runnable是为了兼容以前把它当作Runnable使用的子类。
+     */
+    protected class BounceRunnable implements Runnable, Choreographer.FrameCallback {
+
+        /**
+         * 速度衰减的时间单位(毫秒)，参考{@link ScrollPhysics#getBounceVelocityRatio(float)}
+         */
+        static final float FRAME_INTERVAL = 10f;
+
         int mSmoothDistance;
+        long mStartTime;
         long mLastTime;
         float mOffset = 0;
+        float mStartVelocity;
         float mVelocity;
 
+        /**
+         * 已经移动的越界距离，保留小数部分，避免每帧取整丢失距离
+         */
+        float mDistance = 0;
+        int mMovedDistance = 0;
+
+        // 是否已经请求了下一帧
+        boolean mFramePosted;
+
         /**
          * @param velocity 大于0 为往底部走 否则 为往顶部走
          */
         BounceRunnable(float velocity, int smoothDistance) {
+            mStartVelocity = velocity;
             mVelocity = velocity;
             mSmoothDistance = smoothDistance;
-            mLastTime = AnimationUtils.currentAnimationTimeMillis();
-            mHandler.postDelayed(this, mFrameDelay);
+            // Choreographer的帧时间和System.nanoTime()使用相同的时间基准
+            mStartTime = System.nanoTime();
+            mLastTime = mStartTime;
+            postFrame();
+        }
+
+        private void postFrame() {
+            if (!mFramePosted) {
+                mFramePosted = true;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
         }
 
+        /**
+         * 以前的子类可能通过mHandler执行它。滑动由Choreographer的每一帧驱动，这里只确保已经请求了下一帧
+         */
         @Override
         public void run() {
             if (mAnimationRunnable == this) {
-//                mVelocity *= Math.pow(0.45f, ++mFrame * 2);//回弹滚动数度衰减
-                mVelocity *= Math.pow(0.85f, ++mFrame * 2);//回弹滚动数度衰减
-                long now = AnimationUtils.currentAnimationTimeMillis();
-                float t = 1f * (now - mLastTime) / 1000;
-                float velocity = mVelocity * t;
-                if (Math.abs(velocity) >= 1) {
-                    mLastTime = now;
-                    mOffset += velocity;
-                    int oldScrollY = getScrollY();
-                    moveOverScroll(mOffset);
-                    if (oldScrollY != mSecondScrollY) {
-                        scrollChange(mSecondScrollY, oldScrollY);
-                    }
-                    mHandler.postDelayed(this, mFrameDelay);
-                } else {
-                    mAnimationRunnable = null;
-                    int startY = getScrollY();
-                    int duration;
-                    duration = 10 * Math.min(Math.max((int) Util.px2dp(Math.abs(startY - mSmoothDistance)), 30), 100);
-                    startSpringAnimation(startY, mSmoothDistance, 0, mReboundInterpolator, duration);
+                postFrame();
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mFramePosted = false;
+            if (mAnimationRunnable != this) {
+                return;
+            }
+
+            // 回弹滚动数度衰减
+            float frames = Math.max(0, frameTimeNanos - mStartTime) / 1000000f / FRAME_INTERVAL;
+            mVelocity = mStartVelocity * mScrollPhysics.getBounceVelocityRatio(frames);
+
+            if (Math.abs(mVelocity) * FRAME_INTERVAL / 1000 >= 1) {
+                float frameDuration = Math.max(0, frameTimeNanos - mLastTime) / 1000000f;
+                mLastTime = frameTimeNanos;
+                mOffset += mVelocity * frameDuration / 1000;
+                mDistance += computeOverScrollDistance(mOffset) * frameDuration / FRAME_INTERVAL;
+
+                int dy = (int) mDistance - mMovedDistance;
+                if (dy != 0) {
+                    mMovedDistance += dy;
+                    int oldScrollY = mSecondScrollY;
+                    mSecondScrollY += dy;
+                    scrollSelf(getScrollY() + dy);
+                    scrollChange(mSecondScrollY, oldScrollY);
                 }
+                postFrame();
+            } else {
+                mAnimationRunnable = null;
+                int startY = getScrollY();
+                int duration;
+                duration = 10 * Math.min(Math.max((int) Util.px2dp(Math.abs(startY - mSmoothDistance)), 30), 100);
+                startSpringAnimation(startY, mSmoothDistance, 0, mReboundInterpolator, duration);
             }
         }
     }
@@ -1329,35 +2146,44 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
      * @param offset 偏移量
      */
     protected void moveOverScroll(float offset) {
+        int mSpinner = (int) computeOverScrollDistance(offset);
+        if (Math.abs(offset) >= 1 && mSpinner == 0) {
+            mSpinner = (int) offset;
+        }
+        int finalScrollY = getScrollY() + mSpinner;
+        mSecondScrollY += mSpinner;
+        scrollSelf(finalScrollY);
+    }
+
+    /**
+     * 计算越界拖动的阻尼距离
+     *
+     * @param offset 偏移量
+     * @return 加上阻尼后的实际越界距离
+     */
+    protected float computeOverScrollDistance(float offset) {
         final View thisView = this;
 
         final float maxDragHeight;
 
-        final double M;
-        final double H = Math.max(mScreenHeightPixels / 2, thisView.getHeight());
-        final double x;
-        final double y;
-        int finalScrollY;
+        final float M;
+        final float H = Math.max(mScreenHeightPixels / 2, thisView.getHeight());
+        final float x;
+        final float y;
         if (offset > 0) {
             //偏移量为正数 则是 底部越界 向上拖拽
             maxDragHeight = mOverDragMaxDistanceOfBottom;
             M = maxDragHeight;
             x = Math.max(0, offset * mDragRate);
-            y = Math.min(M * (1 - Math.pow(100, -x / (H == 0 ? 1 : H))), x);// 公式 y = M(1-100^(-x/H))
+            y = Math.min(M * mScrollPhysics.getOverScrollResistance(x / (H == 0 ? 1 : H)), x);// 默认公式 y = M(1-100^(-x/H))
         } else {
             //偏移量为负数 则是 顶部越界 拖拽
             maxDragHeight = mOverDragMaxDistanceOfBottom;
             M = maxDragHeight;
             x = -Math.min(0, offset * mDragRate);
-            y = -Math.min(M * (1 - Math.pow(100, -x / (H == 0 ? 1 : H))), x);// 公式 y = M(1-100^(-x/H))
+            y = -Math.min(M * mScrollPhysics.getOverScrollResistance(x / (H == 0 ? 1 : H)), x);// 默认公式 y = M(1-100^(-x/H))
         }
-        int mSpinner = (int) y;
-        if (Math.abs(offset) >= 1 && mSpinner == 0) {
-            mSpinner = (int) offset;
-        }
-        finalScrollY = getScrollY() + mSpinner;
-        mSecondScrollY += mSpinner;
-        scrollSelf(finalScrollY);
+        return y;
     }
 
     /**
@@ -1376,7 +2202,7 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
                 mReboundAnimator.cancel();//会触发 cancel 和 end 调用
                 mReboundAnimator = null;
             }
-            mAnimationRunnable = null;
+            stopOverScrollBounce();
             mReboundAnimator = ValueAnimator.ofInt(startSpinner, endSpinner);
             mReboundAnimator.setDuration(duration);
             mReboundAnimator.setInterpolator(interpolator);
@@ -1392,7 +2218,7 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
                         return;
                     }
                     mReboundAnimator = null;
-                    checkTargetsScroll(false, false);
+                    scheduleCheckTargetsScroll();
                 }
             });
             mReboundAnimator.addUpdateListener(animation -> {
@@ -1550,12 +2376,12 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
                     moveOverScroll(scrollOffset);
                 } else {
                     //向上越界拖动，全消费掉
-                    dispatchNestedScroll(0, 0, 0, remainder, mScrollOffset,
+                    int nestedConsumed = dispatchNestedScrollInternal(0, remainder, mScrollOffset,
                             ViewCompat.TYPE_TOUCH);
-                    if (mScrollOffset[1] == 0) {
-                        if (mOverDragMode && mOverDragMaxDistanceOfBottom >= 0) {
-                            moveOverScroll(remainder);
-                        }
+                    mNestedConsumedY += nestedConsumed;
+                    remainder -= nestedConsumed;
+                    if (remainder != 0 && mOverDragMode && mOverDragMaxDistanceOfBottom >= 0) {
+                        moveOverScroll(remainder);
                     }
                     remainder = 0;
                 }
@@ -1659,9 +2485,10 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
                     moveOverScroll(scrollOffset);
                 } else {
                     //向下越界拖动
-                    dispatchNestedScroll(0, 0, 0, remainder, mScrollOffset,
+                    int nestedConsumed = dispatchNestedScrollInternal(0, remainder, mScrollOffset,
                             ViewCompat.TYPE_TOUCH);
-                    remainder += mScrollOffset[1];
+                    mNestedConsumedY += nestedConsumed;
+                    remainder -= nestedConsumed;
                     if (remainder != 0) {
                         moveOverScroll(remainder);
                     }
@@ -1710,6 +2537,9 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
     }
 
     private void scrollChange(int scrollY, int oldScrollY) {
+        if (getParent() instanceof ConsecutiveScrollerLayout) {
+            ((ConsecutiveScrollerLayout) getParent()).onChildContentScrolled(scrollY - oldScrollY);
+        }
         if (mOnScrollChangeListener != null) {
             mOnScrollChangeListener.onScrollChange(this, scrollY, oldScrollY, mScrollState);
         }
@@ -1744,49 +2574,105 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
     }
 
     private void scrollChild(View child, int y) {
-        View scrolledView = ScrollUtils.getScrolledView(child);
-        if (scrolledView instanceof AbsListView) {
-            AbsListView listView = (AbsListView) scrolledView;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                listView.scrollListBy(y);
-            }
-        } else {
-            boolean isInterceptRequestLayout = false;
-            if (scrolledView instanceof RecyclerView) {
-                isInterceptRequestLayout = ScrollUtils.startInterceptRequestLayout((RecyclerView) scrolledView);
-            }
+        mDispatchingChildScroll = true;
+        ScrollUtils.scrollContentBy(child, y);
+        mDispatchingChildScroll = false;
+    }
 
-            scrolledView.scrollBy(0, y);
+    public void checkLayoutChange() {
+        scheduleLayoutChangeCheck(true);
+    }
 
-            if (isInterceptRequestLayout) {
-                final RecyclerView view = (RecyclerView) scrolledView;
-                view.postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        ScrollUtils.stopInterceptRequestLayout(view);
-                    }
-                }, 0);
-            }
+    /**
+     * 安排在下一帧里校验布局
+     *
+     * @param isForce
+     */
+    private void scheduleLayoutChangeCheck(boolean isForce) {
+        mLayoutChangeCheckForce |= isForce;
+        if (!mLayoutChangeCheckScheduled) {
+            mLayoutChangeCheckScheduled = true;
+            ViewCompat.postOnAnimation(this, mLayoutChangeCheckRunnable);
         }
     }
 
-    public void checkLayoutChange() {
-        postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                checkLayoutChange(false, true);
-            }
-        }, 20);
+    /**
+     * RecyclerView的数据发生变化，记录了显示位置的锚点，需要在布局完成后恢复
+     *
+     * @param anchorChild 锚点所在的子view
+     */
+    void onAnchorCaptured(View anchorChild) {
+        markChildDirty(anchorChild);
+        scheduleLayoutChangeCheck(false);
+    }
+
+    /**
+     * 按锚点的偏移量滑动，恢复数据变化前的显示位置
+     *
+     * @param offset
+     */
+    void scrollAnchorBy(int offset) {
+        dispatchScroll(offset);
+    }
+
+    /**
+     * 子view的当前滑动view或者滑动数值改变了，在下一帧里校验这个子view和后面子view的滚动位置
+     *
+     * @param scroller 实现IConsecutiveScroller2的view，它是联动容器的子view或者子view通过layout_scrollChild指定的滑动view
+     */
+    private void onChildScrollerChanged(View scroller) {
+        View child = scroller;
+        while (child != null && child.getParent() != this) {
+            ViewParent parent = child.getParent();
+            child = parent instanceof View ? (View) parent : null;
+        }
+        if (child != null) {
+            syncItemHeightCaches();
+            markChildDirty(child);
+            scheduleLayoutChangeCheck(false);
+        }
+    }
+
+    /**
+     * 标记子view需要校验内容的滚动位置
+     *
+     * @param child
+     */
+    private void markChildDirty(View child) {
+        markChildDirty(indexOfChild(child));
+    }
+
+    /**
+     * 标记下标为index的子view及它后面的子view需要校验内容的滚动位置
+     *
+     * @param index
+     */
+    private void markChildDirty(int index) {
+        mSecondScrollYValid = false;
+        if (index >= 0 && index < mFirstDirtyChildIndex) {
+            mFirstDirtyChildIndex = index;
+        }
     }
 
     /**
-     * 布局发生变化，重新检查所有子View是否正确显示
+     * 布局发生变化，重新检查发生变化的子View及它后面的子View是否正确显示
      */
     private void checkLayoutChange(boolean changed, boolean isForce) {
+        // 联动容器的大小改变了或者强制校验时，所有子view都需要校验
+        int fromIndex = changed || isForce ? 0 : mFirstDirtyChildIndex;
+        mFirstDirtyChildIndex = NO_DIRTY_CHILD;
 
         int y = mSecondScrollY;
 
-        if (mScrollToTopView != null && changed) {
+        // RecyclerView的数据变化记录了锚点，并且锚点所在的view已经完成布局，优先按锚点恢复显示位置
+        boolean isRestoreAnchor = mAdapterAnchorHelper.isAnchorLaidOut();
+        if (mAdapterAnchorHelper.hasAnchor() && !isRestoreAnchor) {
+            // 锚点所在的view还没有完成布局，等它布局后再恢复
+            markChildDirty(mAdapterAnchorHelper.getAnchorChild());
+            scheduleLayoutChangeCheck(false);
+        }
+
+        if (!isRestoreAnchor && mScrollToTopView != null && changed) {
             if (indexOfChild(mScrollToTopView) != -1) {
                 scrollSelf(mScrollToTopView.getTop() + mAdjust);
             }
@@ -1794,14 +2680,20 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
             scrollSelf(getScrollY());
         }
 
-        checkTargetsScroll(true, isForce);
+        if (fromIndex != NO_DIRTY_CHILD) {
+            checkTargetsScroll(true, isForce, fromIndex);
+        }
 
         // 如果正在显示的子布局和滑动偏移量mScrollToTopView都改变了，则有可能是因为布局发生改变，并且影响到正在显示的布局部分。
         // scrollTo(0, y)把布局的滑动位置恢复为原来的mScrollToTopView，可以避免正在显示的布局显示异常。
         // 注意：由于RecyclerView的computeVerticalScrollOffset()方法计算到的不是真实的滑动偏移量，而是根据item平均高度估算的值。
         // 所以当RecyclerView的item高度不一致时，可能会导致mScrollToTopView计算的偏移量和布局的实际偏移量不一致，从而导致scrollTo(0, y)恢复
         // 原滑动位置时产生上下偏移的误差。
-        if (y != mSecondScrollY && mScrollToTopView != findFirstVisibleView()) {
+        // 如果是RecyclerView的数据变化引起的布局变化，按数据变化前记录的锚点(子view + item位置 + 像素偏移量)精确地恢复显示位置，
+        // 不需要用估算的偏移量恢复。
+        boolean isAnchorRestored = isRestoreAnchor && mAdapterAnchorHelper.restoreAnchor();
+        if (!isAnchorRestored && !mAdapterAnchorHelper.hasAnchor()
+                && y != mSecondScrollY && mScrollToTopView != findFirstVisibleView()) {
             scrollTo(0, y);
         }
 
@@ -1815,6 +2707,15 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
      * 校验子view内容滚动位置是否正确
      */
     private void checkTargetsScroll(boolean isLayoutChange, boolean isForce) {
+        checkTargetsScroll(isLayoutChange, isForce, 0);
+    }
+
+    /**
+     * 校验子view内容滚动位置是否正确
+     *
+     * @param fromIndex 只校验这个位置及以后的子view
+     */
+    private void checkTargetsScroll(boolean isLayoutChange, boolean isForce, int fromIndex) {
         if (!isForce && (mTouching || !mScroller.isFinished() || mScrollToIndex != -1)) {
             return;
         }
@@ -1839,20 +2740,24 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
             }
         }
 
-        for (int i = 0; i < index; i++) {
+        for (int i = fromIndex; i < index; i++) {
             final View child = getChildAt(i);
             if (child.getVisibility() == GONE) {
                 continue;
             }
             if (ScrollUtils.isConsecutiveScrollerChild(child)) {
                 View scrollChild = ScrollUtils.getScrollChild(child);
-                if (scrollChild instanceof IConsecutiveScroller) {
-                    List<View> views = ((IConsecutiveScroller) scrollChild).getScrolledViews();
-                    if (views != null && !views.isEmpty()) {
-                        int size = views.size();
-                        for (int c = 0; c < size; c++) {
-                            scrollChildContentToBottom(views.get(c));
-                        }
+                if (scrollChild instanceof LazySyncScroller) {
+                    // 只校验当前页面，其他页面在显示时再校验
+                    LazySyncScroller scroller = (LazySyncScroller) scrollChild;
+                    scroller.markPagesNeedSync();
+                    scrollChildContentToBottom(scroller.getCurrentScrollerView());
+                } else if (scrollChild instanceof IConsecutiveScroller) {
+                    IConsecutiveScroller scroller = (IConsecutiveScroller) scrollChild;
+                    List<View> views = ScrollUtils.getScrolledViewList(scroller);
+                    int size = ScrollUtils.getScrolledViewCount(scroller, views);
+                    for (int c = 0; c < size; c++) {
+                        scrollChildContentToBottom(ScrollUtils.getScrolledViewAt(scroller, views, c));
                     }
                 } else {
                     scrollChildContentToBottom(scrollChild);
@@ -1860,7 +2765,7 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
             }
         }
 
-        for (int i = index + 1; i < getChildCount(); i++) {
+        for (int i = Math.max(index + 1, fromIndex); i < getChildCount(); i++) {
             final View child = getChildAt(i);
             if (child.getVisibility() == GONE) {
                 continue;
@@ -1870,13 +2775,17 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
                     continue;
                 }
                 View scrollChild = ScrollUtils.getScrollChild(child);
-                if (scrollChild instanceof IConsecutiveScroller) {
-                    List<View> views = ((IConsecutiveScroller) scrollChild).getScrolledViews();
-                    if (views != null && !views.isEmpty()) {
-                        int size = views.size();
-                        for (int c = 0; c < size; c++) {
-                            scrollChildContentToTop(views.get(c));
-                        }
+                if (scrollChild instanceof LazySyncScroller) {
+                    // 只校验当前页面，其他页面在显示时再校验
+                    LazySyncScroller scroller = (LazySyncScroller) scrollChild;
+                    scroller.markPagesNeedSync();
+                    scrollChildContentToTop(scroller.getCurrentScrollerView());
+                } else if (scrollChild instanceof IConsecutiveScroller) {
+                    IConsecutiveScroller scroller = (IConsecutiveScroller) scrollChild;
+                    List<View> views = ScrollUtils.getScrolledViewList(scroller);
+                    int size = ScrollUtils.getScrolledViewCount(scroller, views);
+                    for (int c = 0; c < size; c++) {
+                        scrollChildContentToTop(ScrollUtils.getScrolledViewAt(scroller, views, c));
                     }
                 } else {
                     scrollChildContentToTop(scrollChild);
@@ -1895,6 +2804,145 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
         resetSticky();
     }
 
+    /**
+     * 在主线程空闲时校验子view内容的滚动位置
+     */
+    private void scheduleCheckTargetsScroll() {
+        if (!mCheckTargetsScrollScheduled) {
+            mCheckTargetsScrollScheduled = true;
+            Looper.myQueue().addIdleHandler(mCheckTargetsScrollIdleHandler);
+        }
+    }
+
+    /**
+     * 检查可见区域附近的子view内容滚动位置是否正确：第一个可见view之前的子view应该滚动到底部，
+     * 后面在可见区域内的子view应该滚动到顶部。
+     *
+     * @return
+     */
+    private boolean isVisibleTargetsScrollInSync() {
+        View target = findFirstVisibleView();
+        if (target == null) {
+            return true;
+        }
+        int index = indexOfChild(target);
+        int count = getChildCount();
+
+        for (int i = index - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            if (child.getVisibility() != GONE) {
+                if (!isChildContentAtEdge(child, false)) {
+                    return false;
+                }
+                break;
+            }
+        }
+
+        int bottom = getScrollY() + getHeight();
+        for (int i = index + 1; i < count; i++) {
+            View child = getChildAt(i);
+            if (child.getTop() >= bottom) {
+                break;
+            }
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+            if (i == count - 1 && child.getHeight() < this.getHeight() && getScrollY() >= mScrollRange) {
+                continue;
+            }
+            if (!isChildContentAtEdge(child, true)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 子view的内容是否滚动到了顶部或者底部
+     *
+     * @param child
+     * @param isTop true判断顶部，false判断底部
+     * @return
+     */
+    private boolean isChildContentAtEdge(View child, boolean isTop) {
+        if (!ScrollUtils.isConsecutiveScrollerChild(child)) {
+            return true;
+        }
+        View scrollChild = ScrollUtils.getScrollChild(child);
+        if (scrollChild instanceof LazySyncScroller) {
+            // 只有当前页面是可见的
+            scrollChild = ((LazySyncScroller) scrollChild).getCurrentScrollerView();
+        } else if (scrollChild instanceof IConsecutiveScroller) {
+            IConsecutiveScroller scroller = (IConsecutiveScroller) scrollChild;
+            List<View> views = ScrollUtils.getScrolledViewList(scroller);
+            int size = ScrollUtils.getScrolledViewCount(scroller, views);
+            for (int c = 0; c < size; c++) {
+                View view = ScrollUtils.getScrolledViewAt(scroller, views, c);
+                if ((isTop ? ScrollUtils.getScrollTopOffset(view) : ScrollUtils.getScrollBottomOffset(view)) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return (isTop ? ScrollUtils.getScrollTopOffset(scrollChild) : ScrollUtils.getScrollBottomOffset(scrollChild)) == 0;
+    }
+
+    /**
+     * 按子view的位置校验它的下级滑动view的滑动位置：在第一个可见view之前的滚动到底部，之后的滚动到顶部。
+     * 用于页面在显示时校验滑动位置。
+     *
+     * @param child  联动容器的子view
+     * @param target 需要校验的下级滑动view
+     */
+    void syncChildContentScroll(View child, View target) {
+        int childIndex = indexOfChild(child);
+        if (target == null || childIndex == -1) {
+            return;
+        }
+
+        // 判断是否需要滑动内容到底部或顶部
+        if (childIndex == getChildCount() - 1
+                && child.getHeight() < getHeight()
+                && getScrollY() >= mScrollRange) {
+            return;
+        }
+
+        View firstVisibleView = findFirstVisibleView();
+        if (firstVisibleView == null) {
+            return;
+        }
+        int firstIndex = indexOfChild(firstVisibleView);
+
+        if (childIndex < firstIndex) {
+            scrollChildContentToBottom(target);
+        } else if (childIndex > firstIndex) {
+            scrollChildContentToTop(target);
+        }
+    }
+
+    /**
+     * 按保存的页面滑动状态一次定位：把联动容器滑动到子view顶部以下headerOffset的位置，再恢复页面列表的位置。
+     *
+     * @param child  联动容器的子view(ViewPager)
+     * @param target 页面中滑动的view
+     * @param state  页面保存的滑动状态
+     */
+    void restoreChildScroll(View child, View target, PageScrollState state) {
+        if (target == null || indexOfChild(child) == -1) {
+            return;
+        }
+        stopScroll();
+        int oldScrollY = computeVerticalScrollOffset();
+        scrollSelf(child.getTop() + state.headerOffset);
+        state.restore(ScrollUtils.getScrolledView(target));
+        // 只有恢复的子view及它后面的子view的位置可能改变了
+        checkTargetsScroll(false, true, indexOfChild(child));
+        int newScrollY = computeVerticalScrollOffset();
+        if (oldScrollY != newScrollY) {
+            scrollChange(newScrollY, oldScrollY);
+        }
+    }
+
     /**
      * 滚动指定子view的内容到顶部
      *
@@ -1938,6 +2986,69 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
      */
     private void computeOwnScrollOffset() {
         mSecondScrollY = computeVerticalScrollOffset();
+        mSecondScrollYValid = true;
+    }
+
+    /**
+     * 作为上级ConsecutiveScrollerLayout的子view时，返回滑动偏移量。
+     * 滑动过程中mSecondScrollY是逐步累加的，直接返回它，上级容器每一帧读取偏移量时不需要遍历这一层及更下层的所有子view，
+     * 多层嵌套时每一层的计算量和不嵌套时一样。子view的布局改变后重新计算一次。
+     *
+     * @return
+     */
+    int getNestedScrollOffset() {
+        if (!mSecondScrollYValid || !mSecondScrollYObservable) {
+            computeOwnScrollOffset();
+            observeScrolledViews();
+        }
+        return mSecondScrollY;
+    }
+
+    /**
+     * 监听子view中RecyclerView的滑动，它们不是由联动容器引起的滑动会让mSecondScrollY失效。
+     * WebView等不能添加滑动监听的可滑动子view无法监听。
+     */
+    private void observeScrolledViews() {
+        boolean observable = true;
+        List<RecyclerView> oldViews = new ArrayList<>(mObservedScrolledViews);
+        mObservedScrolledViews.clear();
+        int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() == GONE || !ScrollUtils.isConsecutiveScrollerChild(child)) {
+                continue;
+            }
+            View scrolledView = ScrollUtils.getScrolledView(child);
+            if (scrolledView instanceof RecyclerView) {
+                RecyclerView recyclerView = (RecyclerView) scrolledView;
+                mObservedScrolledViews.add(recyclerView);
+                if (!oldViews.remove(recyclerView)) {
+                    recyclerView.addOnScrollListener(mScrolledViewScrollListener);
+                }
+            } else if (!(scrolledView instanceof ConsecutiveScrollerLayout)
+                    && ScrollUtils.canScrollVertically(scrolledView)) {
+                // 下级的ConsecutiveScrollerLayout滑动时会通知onChildContentScrolled
+                observable = false;
+            }
+        }
+        for (RecyclerView recyclerView : oldViews) {
+            recyclerView.removeOnScrollListener(mScrolledViewScrollListener);
+        }
+        mSecondScrollYObservable = observable;
+    }
+
+    /**
+     * 子view的内容滑动了。不是由联动容器引起的滑动，mSecondScrollY和上级联动容器记录的偏移量都需要重新计算
+     *
+     * @param dy
+     */
+    private void onChildContentScrolled(int dy) {
+        if (dy != 0 && !mDispatchingChildScroll) {
+            mSecondScrollYValid = false;
+            if (getParent() instanceof ConsecutiveScrollerLayout) {
+                ((ConsecutiveScrollerLayout) getParent()).onChildContentScrolled(dy);
+            }
+        }
     }
 
     /**
@@ -2004,6 +3115,7 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
      * 停止滑动
      */
     public void stopScroll() {
+        mChildFlingScroller.forceFinished(true);
         if (!mScroller.isFinished()) {
             mScroller.abortAnimation();
             stopNestedScroll(ViewCompat.TYPE_NON_TOUCH);
@@ -2100,19 +3212,18 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
     }
 
     /**
-     * 重置脱离吸顶的view的TranslationY
+     * 重置脱离吸顶的view的TranslationY，只在TranslationY改变时修改，避免不必要的重绘
      *
      * @param child
      */
     private void resetTranslationYOffSticky(View child) {
-        child.setTranslationY(0);
-    }
-
-    private void resetTranslationYOffSticky(List<View> newStickyViews, List<View> oldStickyViews) {
-        for (View child : oldStickyViews) {
-            if (!newStickyViews.contains(child)) {
-                resetTranslationYOffSticky(child);
-            }
+        StickyLayer layer = mStickyLayers.remove(child);
+        if (layer != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            layer.release();
+            ViewCompat.postInvalidateOnAnimation(this);
+        }
+        if (child.getTranslationY() != 0) {
+            child.setTranslationY(0);
         }
     }
 
@@ -2120,14 +3231,10 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
      * 重置吸顶
      */
     private void resetSticky() {
-        List<View> children = getStickyChildren();
+        updateStickyChildren();
+        List<View> children = mStickyChildren;
         if (!children.isEmpty()) {
             int count = children.size();
-            // 让所有的View恢复原来的状态
-            for (int i = 0; i < count; i++) {
-                View child = children.get(i);
-                child.setTranslationY(0);
-            }
             if (mIsPermanent) {//常驻
                 clearCurrentStickyView();
                 permanentStickyChild(children);
@@ -2135,29 +3242,21 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
 
                 clearCurrentStickyViews();
 
+                // 找到需要吸顶的View
+                int stickyIndex = findStickyIndex(count);
                 // 需要吸顶的View
-                View stickyView = null;
+                View stickyView = stickyIndex >= 0 ? children.get(stickyIndex) : null;
                 // 下一个需要吸顶的View
-                View nextStickyView = null;
-
-                // 找到需要吸顶的View
-                for (int i = count - 1; i >= 0; i--) {
-                    View child = children.get(i);
-                    //新增处理顶部越界下拉时，让吸顶view继续吸在顶部
-                    int scrollY = getScrollY();
-                    boolean find = scrollY < 0 && child.getTop() + scrollY <= getStickyY(child);
-                    if (find || child.getTop() <= getStickyY(child)) {
-                        stickyView = child;
-                        if (i != count - 1) {
-                            nextStickyView = children.get(i + 1);
-                        }
-                        break;
-                    }
-                }
+                View nextStickyView = stickyIndex >= 0 && stickyIndex < count - 1 ? children.get(stickyIndex + 1) : null;
 
                 View oldStickyView = mCurrentStickyView;
                 View newStickyView = stickyView;
 
+                // 普通吸顶模式中只有一个吸顶的view，只需要恢复上一个吸顶view的位置
+                if (oldStickyView != null && oldStickyView != stickyView) {
+                    resetTranslationYOffSticky(oldStickyView);
+                }
+
                 if (stickyView != null) {
                     int offset = 0;
                     if (nextStickyView != null && !isSink(stickyView)) {
@@ -2169,9 +3268,6 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
 
                 if (oldStickyView != newStickyView) {
                     mCurrentStickyView = newStickyView;
-                    if (oldStickyView != null) {
-                        resetTranslationYOffSticky(oldStickyView);
-                    }
                     stickyChange(oldStickyView, newStickyView);
                 }
             }
@@ -2182,6 +3278,94 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
         }
     }
 
+    /**
+     * 按布局的位置重新计算吸顶子View和它们的吸顶位置，只在布局改变后执行
+     */
+    private void updateStickyChildren() {
+        if (!mStickyChildrenInvalid) {
+            return;
+        }
+        mStickyChildrenInvalid = false;
+
+        mTempStickyChildren.clear();
+        mTempStickyChildren.addAll(mStickyChildren);
+        mStickyChildren.clear();
+        int count = getChildCount();
+        for (int i = 0; i < count; i++) {
+            View child = getChildAt(i);
+            if (child.getVisibility() != GONE && isStickyView(child)) {
+                mStickyChildren.add(child);
+            }
+        }
+
+        // 不再是吸顶view的子view(比如关闭了isSticky)恢复原来的位置
+        for (View child : mTempStickyChildren) {
+            if (!mStickyChildren.contains(child)) {
+                resetTranslationYOffSticky(child);
+            }
+        }
+        mTempStickyChildren.clear();
+
+        int size = mStickyChildren.size();
+        if (mStickyTops.length < size) {
+            mStickyTops = new int[size];
+            mPermanentHeights = new int[size];
+        }
+        int minTop = Integer.MAX_VALUE;
+        for (int i = size - 1; i >= 0; i--) {
+            View child = mStickyChildren.get(i);
+            minTop = Math.min(minTop, child.getTop() - getChildStickyOffset(child));
+            mStickyTops[i] = minTop;
+        }
+
+        int permanentHeight = 0;
+        for (int i = 0; i < size; i++) {
+            View child = mStickyChildren.get(i);
+            mPermanentHeights[i] = permanentHeight;
+            if (!isSink(child)) {
+                permanentHeight += child.getMeasuredHeight();
+            }
+        }
+
+        // 吸顶view的位置可能已经改变，按新的位置同步正在吸顶的view
+        mCurrentStickyBits.clear();
+        for (View child : mCurrentStickyViews) {
+            int index = mStickyChildren.indexOf(child);
+            if (index >= 0) {
+                mCurrentStickyBits.set(index);
+            }
+        }
+    }
+
+    /**
+     * 二分查找需要吸顶的view，即最后一个 top <= getStickyY(child) 的吸顶view
+     *
+     * @param count 吸顶view的数量
+     * @return 吸顶view在mStickyChildren中的位置，没有则返回-1
+     */
+    private int findStickyIndex(int count) {
+        int stickyY = getStickyY();
+        int scrollY = getScrollY();
+        if (scrollY < 0) {
+            //新增处理顶部越界下拉时，让吸顶view继续吸在顶部
+            stickyY -= scrollY;
+        }
+
+        int low = 0;
+        int high = count - 1;
+        int index = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (mStickyTops[mid] <= stickyY) {
+                index = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return index;
+    }
+
     private void clearCurrentStickyView() {
         if (mCurrentStickyView != null) {
             View oldStickyView = mCurrentStickyView;
@@ -2192,11 +3376,13 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
     }
 
     private void clearCurrentStickyViews() {
+        mCoveredTop = mCoveredBottom = 0;
         if (!mCurrentStickyViews.isEmpty()) {
             for (View child : mCurrentStickyViews) {
                 resetTranslationYOffSticky(child);
             }
             mCurrentStickyViews.clear();
+            mCurrentStickyBits.clear();
             permanentStickyChange(mCurrentStickyViews);
         }
     }
@@ -2208,13 +3394,105 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
      * @param offset
      */
     private void stickyChild(View child, int offset) {
-        child.setY(getStickyY(child) - offset);
+        setStickyY(child, getStickyY(child) - offset);
 
         // 把View设置为可点击的，避免吸顶View与其他子View重叠是，触摸事件透过吸顶View传递给下面的View，
         // 导致ConsecutiveScrollerLayout追踪布局的滑动出现偏差
         child.setClickable(true);
     }
 
+    /**
+     * 设置吸顶view的位置，只在位置改变时修改TranslationY，避免不必要的重绘
+     *
+     * @param child
+     * @param y
+     */
+    private void setStickyY(View child, int y) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && isStickyLayerActive() && !isSink(child)) {
+            StickyLayer layer = mStickyLayers.get(child);
+            if (layer == null) {
+                layer = new StickyLayer(child);
+                mStickyLayers.put(child, layer);
+                layer.setY(y);
+                ViewCompat.postInvalidateOnAnimation(this);
+            }
+            if (!layer.isDetached()) {
+                // 吸顶view留在布局的位置上，由图层绘制到吸顶的位置
+                if (child.getTranslationY() != 0) {
+                    child.setTranslationY(0);
+                }
+                if (layer.setY(y)) {
+                    ViewCompat.postInvalidateOnAnimation(this);
+                }
+                return;
+            }
+            layer.setY(y);
+        }
+
+        float translationY = y - child.getTop();
+        if (child.getTranslationY() != translationY) {
+            child.setTranslationY(translationY);
+        }
+    }
+
+    /**
+     * 是否可以使用吸顶图层。lint不能识别这个方法中的版本判断，调用StickyLayer的地方还需要直接判断SDK版本
+     */
+    private boolean isStickyLayerActive() {
+        return mStickyLayerEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && isHardwareAccelerated();
+    }
+
+    /**
+     * 触摸到图层中的吸顶view时，让吸顶view退出图层，直接移动到吸顶的位置，使它可以接收触摸事件。
+     * 吸顶view不再吸顶时会回到图层模式。
+     *
+     * @param x 触摸点在内容中的x坐标
+     * @param y 触摸点在内容中的y坐标
+     */
+    private void detachTouchedStickyLayer(int x, int y) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || mStickyLayers.isEmpty()) {
+            return;
+        }
+        // 后绘制的吸顶view在上面，从后往前查找
+        for (int i = mStickyChildren.size() - 1; i >= 0; i--) {
+            View child = mStickyChildren.get(i);
+            StickyLayer layer = mStickyLayers.get(child);
+            if (layer != null && !layer.isDetached() && layer.contains(x, y)) {
+                layer.setDetached(true);
+                layer.release();
+                child.setTranslationY(layer.getY() - child.getTop());
+                ViewCompat.postInvalidateOnAnimation(this);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 布局改变后，吸顶图层需要重新录制
+     */
+    private void invalidateStickyLayers() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return;
+        }
+        for (StickyLayer layer : mStickyLayers.values()) {
+            layer.invalidate();
+        }
+    }
+
+    /**
+     * 释放吸顶图层，吸顶view回到用TranslationY吸顶的方式
+     */
+    private void releaseStickyLayers() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && !mStickyLayers.isEmpty()) {
+            for (StickyLayer layer : mStickyLayers.values()) {
+                layer.release();
+                View child = layer.getView();
+                child.setTranslationY(layer.getY() - child.getTop());
+            }
+            mStickyLayers.clear();
+        }
+    }
+
     /**
      * 获取吸顶的位置。
      *
@@ -2225,12 +3503,21 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
     }
 
     private int getStickyY(View child) {
-        int offset = 0;
+        return getStickyY() + getChildStickyOffset(child);
+    }
+
+    /**
+     * 子View吸顶时的偏移量
+     *
+     * @param child
+     * @return
+     */
+    private int getChildStickyOffset(View child) {
         ViewGroup.LayoutParams lp = child.getLayoutParams();
         if (lp instanceof LayoutParams) {
-            offset = ((LayoutParams) lp).stickyOffset;
+            return ((LayoutParams) lp).stickyOffset;
         }
-        return getStickyY() + offset;
+        return 0;
     }
 
     /**
@@ -2239,49 +3526,69 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
      * @param children
      */
     private void permanentStickyChild(List<View> children) {
-        mTempStickyViews.clear();
-        for (int i = 0; i < children.size(); i++) {
+        mTempStickyBits.clear();
+        int count = children.size();
+        for (int i = 0; i < count; i++) {
             View child = children.get(i);
-            int permanentHeight = getPermanentHeight(children, i);
-            if (child.getTop() <= getStickyY(child) + permanentHeight) {
-                child.setY(getStickyY(child) + permanentHeight);
+            int stickyY = getStickyY(child) + mPermanentHeights[i];
+            if (child.getTop() <= stickyY) {
+                setStickyY(child, stickyY);
                 child.setClickable(true);
-                mTempStickyViews.add(child);
+                mTempStickyBits.set(i);
+            } else {
+                resetTranslationYOffSticky(child);
             }
         }
 
-        resetTranslationYOffSticky(mTempStickyViews, mCurrentStickyViews);
-
-        if (!isListEqual()) {
+        if (!mTempStickyBits.equals(mCurrentStickyBits)) {
+            mCurrentStickyBits.clear();
+            mCurrentStickyBits.or(mTempStickyBits);
             mCurrentStickyViews.clear();
-            mCurrentStickyViews.addAll(mTempStickyViews);
-            mTempStickyViews.clear();
+            for (int i = mCurrentStickyBits.nextSetBit(0); i >= 0; i = mCurrentStickyBits.nextSetBit(i + 1)) {
+                mCurrentStickyViews.add(children.get(i));
+            }
             permanentStickyChange(mCurrentStickyViews);
         }
+
+        updateCoveredRegion(children);
     }
 
-    private int getPermanentHeight(List<View> children, int currentPosition) {
-        int height = 0;
-        for (int i = 0; i < currentPosition; i++) {
+    /**
+     * 计算常驻吸顶view遮挡的区域。从最上面的吸顶view开始，取连续堆叠的、不透明的吸顶view所覆盖的区域。
+     * 只有不透明的吸顶view(View.isOpaque())才能完全遮挡下面的内容。
+     *
+     * @param children
+     */
+    private void updateCoveredRegion(List<View> children) {
+        mCoveredTop = mCoveredBottom = 0;
+        int left = Integer.MIN_VALUE;
+        int right = Integer.MAX_VALUE;
+        int top = 0;
+        int bottom = 0;
+        for (int i = mCurrentStickyBits.nextSetBit(0); i >= 0; i = mCurrentStickyBits.nextSetBit(i + 1)) {
             View child = children.get(i);
-            if (!isSink(child)) {
-                height += child.getMeasuredHeight();
+            if (isSink(child)) {
+                continue;
+            }
+            int y = getStickyY(child) + mPermanentHeights[i];
+            if (!child.isOpaque() || (bottom > top && y > bottom)) {
+                // 遇到透明的或者不连续的吸顶view，遮挡区域到此为止
+                break;
             }
+            if (bottom <= top) {
+                top = y;
+            }
+            bottom = Math.max(bottom, y + child.getHeight());
+            left = Math.max(left, child.getLeft());
+            right = Math.min(right, child.getRight());
         }
-        return height;
-    }
 
-    private boolean isListEqual() {
-        if (mTempStickyViews.size() == mCurrentStickyViews.size()) {
-            int size = mTempStickyViews.size();
-            for (int i = 0; i < size; i++) {
-                if (mTempStickyViews.get(i) != mCurrentStickyViews.get(i)) {
-                    return false;
-                }
-            }
-            return true;
+        if (bottom > top && left < right) {
+            mCoveredLeft = left;
+            mCoveredTop = top;
+            mCoveredRight = right;
+            mCoveredBottom = bottom;
         }
-        return false;
     }
 
     /**
@@ -2458,22 +3765,26 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
         List<View> children = getNonGoneChildren();
         int count = children.size();
         for (int i = 0; i < count; i++) {
-            View child = children.get(i);
-            if (!ScrollUtils.isConsecutiveScrollerChild(child)) {
-                range += child.getHeight();
-            } else {
-                if (ScrollUtils.canScrollVertically(child)) {
-                    View view = ScrollUtils.getScrolledView(child);
-                    range += ScrollUtils.computeVerticalScrollRange(view) + view.getPaddingTop() + view.getPaddingBottom();
-                } else {
-                    range += child.getHeight();
-                }
-            }
+            range += getChildScrollRange(children.get(i));
         }
 
         return range;
     }
 
+    /**
+     * 返回子view在联动容器中占用的内容高度。可以滑动的子view返回它的内容高度，否则返回它的高度
+     *
+     * @param child
+     * @return
+     */
+    private int getChildScrollRange(View child) {
+        if (ScrollUtils.isConsecutiveScrollerChild(child) && ScrollUtils.canScrollVertically(child)) {
+            View view = ScrollUtils.getScrolledView(child);
+            return ScrollUtils.computeVerticalScrollRange(view) + view.getPaddingTop() + view.getPaddingBottom();
+        }
+        return child.getHeight();
+    }
+
     @Override
     public int computeVerticalScrollOffset() {
         int scrollOffset = getScrollY();
@@ -2575,6 +3886,13 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
          */
         public int scrollChild = View.NO_ID;
 
+        /**
+         * 是否使用精确的滑动偏移量。设置为true时，如果滑动的子view是垂直布局的RecyclerView(LinearLayoutManager)，
+         * 会缓存每个item测量到的高度，用缓存的高度计算精确的滑动偏移量和滑动范围，而不是RecyclerView按item平均高度估算的值。
+         * 适合item高度差别比较大的RecyclerView。
+         */
+        public boolean isExactScrollOffset = false;
+
         /**
          * 子view与父布局的对齐方式
          */
@@ -2630,6 +3948,7 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
                 align = Align.get(type);
                 scrollChild = a.getResourceId(R.styleable.ConsecutiveScrollerLayout_Layout_layout_scrollChild, View.NO_ID);
                 stickyOffset = a.getDimensionPixelOffset(R.styleable.ConsecutiveScrollerLayout_Layout_layout_stickyOffset, 0);
+                isExactScrollOffset = a.getBoolean(R.styleable.ConsecutiveScrollerLayout_Layout_layout_isExactScrollOffset, false);
             } catch (Exception e) {
                 e.printStackTrace();
             } finally {
@@ -2745,11 +4064,13 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
                 mScrollToIndexWithOffset = offset;
                 setScrollState(SCROLL_STATE_SETTLING);
                 if (scrollOrientation < 0) {
-                    mSmoothScrollOffset = -50;
+                    mSmoothScrollOffset = -mScrollPhysics.getSmoothScrollStartOffset();
                 } else {
-                    mSmoothScrollOffset = 50;
+                    mSmoothScrollOffset = mScrollPhysics.getSmoothScrollStartOffset();
                 }
-                invalidate();
+                mSmoothScrollRemainder = 0;
+                mSmoothScrollLastTime = AnimationUtils.currentAnimationTimeMillis();
+                ViewCompat.postInvalidateOnAnimation(this);
             }
         }
     }
@@ -2846,6 +4167,66 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
         return mStickyOffset;
     }
 
+    /**
+     * 设置是否使用吸顶图层。开启后，在Android 10及以上并且开启了硬件加速时，非下沉的吸顶view会录制到RenderNode中，
+     * 由ConsecutiveScrollerLayout绘制到吸顶的位置，吸顶view本身留在布局的位置上，滑动时不会修改它的属性。
+     * 吸顶view只在自己刷新时重新录制，适合比较复杂的吸顶view。吸顶view被触摸时会移动到吸顶的位置接收触摸事件。
+     *
+     * @param enabled
+     */
+    public void setStickyLayerEnabled(boolean enabled) {
+        if (mStickyLayerEnabled != enabled) {
+            mStickyLayerEnabled = enabled;
+            releaseStickyLayers();
+            resetSticky();
+        }
+    }
+
+    public boolean isStickyLayerEnabled() {
+        return mStickyLayerEnabled;
+    }
+
+    /**
+     * 设置连续滑动的RecyclerView子view是否共用一个RecycledViewPool。开启后，多个RecyclerView中相同viewType的item可以复用ViewHolder，
+     * 并且在下一个RecyclerView滑进显示区域之前，按它第一屏的item数量调整缓存数量。
+     * 只有联动容器直接的RecyclerView子view会共用，它们原来的RecycledViewPool会被替换，关闭共用或者子view被移除时恢复。
+     * 注意：共用RecycledViewPool要求这些RecyclerView的adapter中，相同的viewType对应相同的item布局。
+     *
+     * @param share
+     */
+    public void setShareRecycledViewPool(boolean share) {
+        if (share == isShareRecycledViewPool()) {
+            return;
+        }
+        if (share) {
+            mSharedRecycledViewPool = new RecyclerView.RecycledViewPool();
+            syncSharedRecycledViewPool();
+        } else {
+            int count = getChildCount();
+            for (int i = 0; i < count; i++) {
+                releaseSharedRecycledViewPool(getChildAt(i));
+            }
+            mOriginalRecycledViewPools.clear();
+            mSharedRecycledViewPool = null;
+            mSharedPoolCapacities.clear();
+            mPrefetchRecyclerView = null;
+        }
+    }
+
+    public boolean isShareRecycledViewPool() {
+        return mSharedRecycledViewPool != null;
+    }
+
+    /**
+     * 返回共用的RecycledViewPool，可以用它设置每种viewType的缓存数量。没有开启时返回null
+     *
+     * @return
+     */
+    @Nullable
+    public RecyclerView.RecycledViewPool getSharedRecycledViewPool() {
+        return mSharedRecycledViewPool;
+    }
+
     /**
      * 获取正在吸顶的view
      *
@@ -2901,6 +4282,19 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
         this.mOnPermanentStickyChangeListener = l;
     }
 
+    public OnFlingPrefetchListener getOnFlingPrefetchListener() {
+        return mOnFlingPrefetchListener;
+    }
+
+    /**
+     * 监听fling预测经过和停留的子view，可以在子view显示之前提前加载它的内容(图片、数据等)
+     *
+     * @param l
+     */
+    public void setOnFlingPrefetchListener(OnFlingPrefetchListener l) {
+        this.mOnFlingPrefetchListener = l;
+    }
+
     /**
      * 滑动监听
      */
@@ -2931,6 +4325,23 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
 
     }
 
+    /**
+     * 监听fling预测经过和停留的子view
+     */
+    public interface OnFlingPrefetchListener {
+
+        /**
+         * fling开始时，每个预计会经过或停留的子view回调一次，按子view的顺序回调
+         *
+         * @param child      预计会显示的子view
+         * @param index      子view在联动容器中的索引
+         * @param fromOffset 预计经过的子view内容范围的起点，相对于子view内容的顶部
+         * @param toOffset   预计经过的子view内容范围的终点，相对于子view内容的顶部
+         * @param isLanding  fling停止时，子view是否在显示区域内
+         */
+        void onFlingPrefetch(@NonNull View child, int index, int fromOffset, int toOffset, boolean isLanding);
+    }
+
     @Override
     public void setNestedScrollingEnabled(boolean enabled) {
         mChildHelper.setNestedScrollingEnabled(enabled);
@@ -2983,6 +4394,52 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
         return mChildHelper.dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow, type);
     }
 
+    @Override
+    public void dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed,
+                                     @Nullable int[] offsetInWindow, int type, @NonNull int[] consumed) {
+        mChildHelper.dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow, type, consumed);
+    }
+
+    /**
+     * 把联动容器没有消费的滑动距离分发给上级view
+     *
+     * @return 上级view实际消费的距离
+     */
+    private int dispatchNestedScrollInternal(int dyConsumed, int dyUnconsumed, @NonNull int[] offsetInWindow, int type) {
+        offsetInWindow[0] = 0;
+        offsetInWindow[1] = 0;
+        mNestedScrollConsumed[0] = 0;
+        mNestedScrollConsumed[1] = 0;
+        dispatchNestedScroll(0, dyConsumed, 0, dyUnconsumed, offsetInWindow, type, mNestedScrollConsumed);
+        if (isNestedScrollingParent3()) {
+            return mNestedScrollConsumed[1];
+        }
+
+        // 上级view没有实现NestedScrollingParent3时，ViewParentCompat会把未消费的距离全部当作已经消费，
+        // 只能按联动容器在窗口中的位置变化判断上级view实际消费的距离
+        int consumed = -offsetInWindow[1];
+        if (dyUnconsumed > 0) {
+            return Math.max(0, Math.min(dyUnconsumed, consumed));
+        } else {
+            return Math.min(0, Math.max(dyUnconsumed, consumed));
+        }
+    }
+
+    /**
+     * 处理嵌套滑动的上级view是否实现了NestedScrollingParent3。
+     * 嵌套滑动的上级view是最近的实现了NestedScrollingParent的上级view
+     */
+    private boolean isNestedScrollingParent3() {
+        ViewParent parent = getParent();
+        while (parent != null) {
+            if (parent instanceof NestedScrollingParent) {
+                return parent instanceof NestedScrollingParent3;
+            }
+            parent = parent.getParent();
+        }
+        return false;
+    }
+
     @Override
     public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
         return dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow, ViewCompat.TYPE_TOUCH);
@@ -3018,6 +4475,10 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
     @Override
     public void onStopNestedScroll(@NonNull View target, int type) {
         mParentHelper.onStopNestedScroll(target, type);
+        if (type == ViewCompat.TYPE_NON_TOUCH && !mScroller.isFinished()) {
+            // 子view的fling已经交给联动容器继续执行，由联动容器的fling结束时再停止嵌套滑动
+            return;
+        }
         stopNestedScroll(type);
         springBack();
         if (mReboundAnimator == null) {
@@ -3025,17 +4486,89 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
         }
     }
 
+    @Override
+    public void onNestedScroll(@NonNull View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed,
+                               int type, @NonNull int[] consumed) {
+        onNestedScrollInternal(target, dyUnconsumed, type, consumed);
+    }
+
     @Override
     public void onNestedScroll(@NonNull View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, int type) {
-        onNestedScrollInternal(dyUnconsumed, type);
+        onNestedScrollInternal(target, dyUnconsumed, type, null);
     }
 
-    private void onNestedScrollInternal(int dyUnconsumed, int type) {
+    /**
+     * 处理子view没有消费的滑动距离
+     *
+     * @param target       发起嵌套滑动的子view
+     * @param dyUnconsumed
+     * @param type
+     * @param consumed     NestedScrollingParent3的消费距离数组，记录联动容器和它的上级view实际消费的距离。为null时不需要记录
+     */
+    private void onNestedScrollInternal(View target, int dyUnconsumed, int type, @Nullable int[] consumed) {
         final int oldScrollY = mSecondScrollY;
+        mNestedConsumedY = 0;
         dispatchScroll(dyUnconsumed);
         final int myConsumed = mSecondScrollY - oldScrollY;
-        final int myUnconsumed = dyUnconsumed - myConsumed;
-        mChildHelper.dispatchNestedScroll(0, myConsumed, 0, myUnconsumed, null, type);
+        final int nestedConsumed = mNestedConsumedY;
+        final int myUnconsumed = dyUnconsumed - myConsumed - nestedConsumed;
+
+        if (type == ViewCompat.TYPE_NON_TOUCH && dyUnconsumed != 0) {
+            // 联动容器接管子view的fling时会直接停止子view的fling
+            continueChildFling(target, dyUnconsumed);
+        }
+
+        if (consumed == null) {
+            mChildHelper.dispatchNestedScroll(0, myConsumed, 0, myUnconsumed, null, type);
+        } else {
+            consumed[1] += myConsumed + nestedConsumed;
+            mChildHelper.dispatchNestedScroll(0, myConsumed, 0, myUnconsumed, null, type, consumed);
+        }
+    }
+
+    /**
+     * 记录子view的fling速度，开始模拟子view的fling
+     *
+     * @param velocityY
+     */
+    private void trackChildFling(int velocityY) {
+        mChildFlingScroller.forceFinished(true);
+        if (Math.abs(velocityY) > mMinimumVelocity) {
+            mChildFlingScroller.fling(0, 0, 0, velocityY,
+                    0, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * 子view fling到边界时，用它剩余的速度让联动容器继续fling，使fling可以连续地滑过后面的子view。
+     * 联动容器接管fling后会停止子view自己的fling，避免子view和联动容器同时fling。
+     *
+     * @param target       正在fling的子view
+     * @param dyUnconsumed 子view本帧未消费的滑动距离
+     * @return 联动容器是否接管了fling
+     */
+    private boolean continueChildFling(View target, int dyUnconsumed) {
+        if (mChildFlingScroller.isFinished() || !mScroller.isFinished()) {
+            return false;
+        }
+
+        mChildFlingScroller.computeScrollOffset();
+        boolean sameDirection = (mChildFlingScroller.getFinalY() > 0) == (dyUnconsumed > 0);
+        int velocity = (int) mChildFlingScroller.getCurrVelocity();
+        mChildFlingScroller.forceFinished(true);
+
+        if (!sameDirection || velocity <= mMinimumVelocity) {
+            return false;
+        }
+
+        if ((dyUnconsumed < 0 && isScrollTop()) || (dyUnconsumed > 0 && isScrollBottom())) {
+            return false;
+        }
+
+        fling(dyUnconsumed > 0 ? velocity : -velocity);
+        // 先开始联动容器的fling再停止子view，子view停止时结束的嵌套滑动不会打断联动容器的fling
+        ScrollUtils.stopScroll(target);
+        return true;
     }
 
     @Override
@@ -3056,7 +4589,7 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
     @Override
     public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed,
                                int dyUnconsumed) {
-        onNestedScrollInternal(dyUnconsumed, ViewCompat.TYPE_TOUCH);
+        onNestedScrollInternal(target, dyUnconsumed, ViewCompat.TYPE_TOUCH, null);
     }
 
     @Override
@@ -3081,6 +4614,8 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
             fling((int) velocityY);
             return true;
         }
+        // 子view自己fling，记录它的速度，等它fling到边界时由联动容器接着fling
+        trackChildFling((int) velocityY);
         return false;
     }
 
@@ -3171,6 +4706,32 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
         mDragRate = rate;
     }
 
+    /**
+     * 设置滑动手感，包括fling的摩擦系数、越界拖动的阻尼、越界回弹的参数和平滑滑动的速度。
+     * 子类自己设置过mReboundDuration或mReboundInterpolator时，保留子类设置的值
+     *
+     * @param scrollPhysics 为null时使用默认的手感
+     */
+    public void setScrollPhysics(ScrollPhysics scrollPhysics) {
+        if (scrollPhysics == null) {
+            scrollPhysics = DefaultScrollPhysics.getDefault();
+        }
+        mScrollPhysics = scrollPhysics;
+        mScroller.setFriction(scrollPhysics.getFlingFriction());
+        if (mReboundInterpolator == mPhysicsReboundInterpolator) {
+            mReboundInterpolator = scrollPhysics.getReboundInterpolator();
+        }
+        mPhysicsReboundInterpolator = scrollPhysics.getReboundInterpolator();
+        if (mReboundDuration == mPhysicsReboundDuration) {
+            mReboundDuration = scrollPhysics.getReboundDuration();
+        }
+        mPhysicsReboundDuration = scrollPhysics.getReboundDuration();
+    }
+
+    public ScrollPhysics getScrollPhysics() {
+        return mScrollPhysics;
+    }
+
     public void setSnapPoints(List<Integer> snapPoints) {
         mSnapPoints = snapPoints;
     }
@@ -3250,7 +4811,7 @@ public class ConsecutiveScrollerLayout extends ViewGroup implements ScrollingVie
         startNestedScroll(ViewCompat.SCROLL_AXIS_VERTICAL, ViewCompat.TYPE_NON_TOUCH);
         setScrollState(SCROLL_STATE_SETTLING);
         mLastScrollerY = mSecondScrollY;
-        invalidate();
+        ViewCompat.postInvalidateOnAnimation(this);
     }
 
 }
@@ -1,7 +1,9 @@
 package com.donkingliang.consecutivescroller;
 
 import android.content.Context;
+import android.database.DataSetObserver;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
@@ -12,6 +14,7 @@ import java.util.List;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.view.ViewCompat;
+import androidx.viewpager.widget.PagerAdapter;
 import androidx.viewpager.widget.ViewPager;
 
 /**
@@ -19,16 +22,237 @@ import androidx.viewpager.widget.ViewPager;
  * @Description
  * @Date 2020/5/22
  */
-public class ConsecutiveViewPager extends ViewPager implements IConsecutiveScroller {
+public class ConsecutiveViewPager extends ViewPager implements LazySyncScroller {
 
     private int mAdjustHeight;
 
+    /**
+     * 缓存的所有页面view，添加或者移除页面时重新计算
+     */
+    private final List<View> mScrolledViews = new ArrayList<>();
+    private boolean mScrolledViewsInvalid = true;
+
+    /**
+     * 缓存的当前页面view，切换页面、添加或者移除页面、重新布局时重新计算
+     */
+    private View mCurrentScrollerView;
+    private boolean mCurrentScrollerViewInvalid = true;
+
+    /**
+     * 非当前页面是否需要在显示时校验滑动位置
+     */
+    private boolean mPagesNeedSync;
+
+    /**
+     * 是否在切换页面时恢复页面的滑动状态
+     */
+    private boolean mRestorePageScroll;
+
+    /**
+     * 每个页面保存的滑动状态
+     */
+    private final SparseArray<PageScrollState> mPageScrollStates = new SparseArray<>();
+
+    // 上一个选中的页面
+    private int mSelectedPage = -1;
+
+    /**
+     * 页面的滑动状态是按页面位置保存的，adapter的数据改变后页面位置可能对应不同的页面，清空保存的状态
+     */
+    private PagerAdapter mObservedAdapter;
+    private final DataSetObserver mAdapterObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            clearPageScrollStates();
+        }
+
+        @Override
+        public void onInvalidated() {
+            clearPageScrollStates();
+        }
+    };
+
+    private OnScrollerChangeListener mOnScrollerChangeListener;
+
+    /**
+     * 监听当前页面滑动view的布局，数据改变等引起的重新布局会改变它的滑动数值
+     */
+    private View mObservedScrolledView;
+    private final OnLayoutChangeListener mScrolledViewLayoutChangeListener = new OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                   int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            notifyScrollMetricsChanged();
+        }
+    };
+
     public ConsecutiveViewPager(@NonNull Context context) {
         super(context);
+        initialize();
     }
 
     public ConsecutiveViewPager(@NonNull Context context, @Nullable AttributeSet attrs) {
         super(context, attrs);
+        initialize();
+    }
+
+    private void initialize() {
+        addOnAdapterChangeListener(new OnAdapterChangeListener() {
+            @Override
+            public void onAdapterChanged(@NonNull ViewPager viewPager, @Nullable PagerAdapter oldAdapter,
+                                         @Nullable PagerAdapter newAdapter) {
+                observeAdapter();
+            }
+        });
+        addOnPageChangeListener(new SimpleOnPageChangeListener() {
+            @Override
+            public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+                // 开始切换页面，相邻的页面显示出来了，校验页面的滑动位置
+                if (mPagesNeedSync && positionOffsetPixels != 0) {
+                    mPagesNeedSync = false;
+                    List<View> views = getCachedScrolledViews();
+                    int size = views.size();
+                    for (int i = 0; i < size; i++) {
+                        syncPageScroll(views.get(i));
+                    }
+                }
+            }
+
+            @Override
+            public void onPageSelected(int position) {
+                if (mRestorePageScroll && mSelectedPage != -1) {
+                    savePageScroll(mSelectedPage, findPageView(mSelectedPage));
+                }
+                mSelectedPage = position;
+                mCurrentScrollerViewInvalid = true;
+
+                PageScrollState state = mRestorePageScroll ? mPageScrollStates.get(position) : null;
+                View page = getCurrentScrollerView();
+                if (state != null && page != ConsecutiveViewPager.this && getParent() instanceof ConsecutiveScrollerLayout) {
+                    ((ConsecutiveScrollerLayout) getParent()).restoreChildScroll(ConsecutiveViewPager.this, page, state);
+                } else {
+                    syncPageScroll(page);
+                }
+                notifyCurrentScrollerChanged();
+            }
+        });
+    }
+
+    /**
+     * 保存页面的滑动状态
+     *
+     * @param position
+     * @param page
+     */
+    private void savePageScroll(int position, View page) {
+        if (page == null || !(getParent() instanceof ConsecutiveScrollerLayout)) {
+            return;
+        }
+        ConsecutiveScrollerLayout parent = (ConsecutiveScrollerLayout) getParent();
+        PageScrollState state = mPageScrollStates.get(position);
+        if (state == null) {
+            state = new PageScrollState();
+            mPageScrollStates.put(position, state);
+        }
+        state.save(ScrollUtils.getScrolledView(page), parent.getScrollY() - getTop());
+    }
+
+    /**
+     * 设置是否在切换页面时恢复页面的滑动状态。开启后，ViewPager会记录每个页面列表的位置(item位置 + 偏移量)
+     * 和ConsecutiveScrollerLayout中页面上方布局的收起状态，切换回这个页面时一次定位恢复。
+     *
+     * @param restorePageScroll
+     */
+    public void setRestorePageScroll(boolean restorePageScroll) {
+        mRestorePageScroll = restorePageScroll;
+        if (!restorePageScroll) {
+            mPageScrollStates.clear();
+        }
+        observeAdapter();
+    }
+
+    /**
+     * 只在开启了恢复页面滑动状态并且添加到窗口时监听adapter的数据改变，避免adapter比ViewPager存在得更久时持有ViewPager。
+     * 监听的adapter改变时清空保存的页面滑动状态
+     */
+    private void observeAdapter() {
+        PagerAdapter adapter = mRestorePageScroll && isAttachedToWindow() ? getAdapter() : null;
+        if (adapter == mObservedAdapter) {
+            return;
+        }
+        if (mObservedAdapter != null) {
+            mObservedAdapter.unregisterDataSetObserver(mAdapterObserver);
+        }
+        mObservedAdapter = adapter;
+        if (adapter != null) {
+            adapter.registerDataSetObserver(mAdapterObserver);
+        }
+        clearPageScrollStates();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        observeAdapter();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        observeAdapter();
+    }
+
+    /**
+     * 清空保存的页面滑动状态，重新从当前页面开始记录
+     */
+    private void clearPageScrollStates() {
+        mPageScrollStates.clear();
+        mSelectedPage = getCurrentItem();
+    }
+
+    public boolean isRestorePageScroll() {
+        return mRestorePageScroll;
+    }
+
+    /**
+     * 按ViewPager在ConsecutiveScrollerLayout中的位置校验页面的滑动位置
+     *
+     * @param page
+     */
+    private void syncPageScroll(View page) {
+        if (page != null && page != this && getParent() instanceof ConsecutiveScrollerLayout) {
+            ((ConsecutiveScrollerLayout) getParent()).syncChildContentScroll(this, page);
+        }
+    }
+
+    @Override
+    public void markPagesNeedSync() {
+        mPagesNeedSync = true;
+    }
+
+    @Override
+    public void onViewAdded(View child) {
+        super.onViewAdded(child);
+        // 页面由adapter的instantiateItem添加，destroyItem移除
+        mScrolledViewsInvalid = true;
+        mCurrentScrollerViewInvalid = true;
+    }
+
+    @Override
+    public void onViewRemoved(View child) {
+        super.onViewRemoved(child);
+        mScrolledViewsInvalid = true;
+        mCurrentScrollerViewInvalid = true;
+        if (child == mCurrentScrollerView) {
+            mCurrentScrollerView = null;
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        // 页面的布局位置可能改变了
+        mCurrentScrollerViewInvalid = true;
     }
 
     @Override
@@ -108,14 +332,61 @@ public class ConsecutiveViewPager extends ViewPager implements IConsecutiveScrol
      */
     @Override
     public View getCurrentScrollerView() {
+        if (mCurrentScrollerViewInvalid) {
+            mCurrentScrollerView = findPageView(getCurrentItem());
+            mCurrentScrollerViewInvalid = false;
+            observeScrolledView(mCurrentScrollerView);
+        }
+        return mCurrentScrollerView != null ? mCurrentScrollerView : this;
+    }
+
+    /**
+     * 按页面的位置找到页面的view。ViewPager把第position页布局在 position * (页面宽度 + pageMargin) 的位置，
+     * 用布局位置(getLeft())判断，不受页面切换动画和PageTransformer设置的TranslationX影响。
+     *
+     * @param position
+     * @return
+     */
+    private View findPageView(int position) {
+        if (getAdapter() == null || getAdapter().getCount() == 0) {
+            return null;
+        }
+        int clientWidth = getMeasuredWidth() - getPaddingLeft() - getPaddingRight();
+        int pageLeft = getPaddingLeft() + position * (clientWidth + getPageMargin());
+
+        View currentView = null;
+        int minDistance = Integer.MAX_VALUE;
         int count = getChildCount();
         for (int i = 0; i < count; i++) {
             View view = getChildAt(i);
-            if (view.getX() == getScrollX() + getPaddingLeft()) {
+            ViewGroup.LayoutParams lp = view.getLayoutParams();
+            if (lp instanceof LayoutParams && ((LayoutParams) lp).isDecor) {
+                continue;
+            }
+            int distance = Math.abs(view.getLeft() - pageLeft);
+            if (distance < minDistance) {
+                minDistance = distance;
+                currentView = view;
+            }
+        }
+
+        // 布局位置的计算有取整误差，允许1px的误差
+        if (minDistance <= 1) {
+            return currentView;
+        }
+
+        // 页面宽度不是ViewPager的宽度(adapter重写了getPageWidth)时，按滑动位置查找当前页面
+        if (position != getCurrentItem()) {
+            return null;
+        }
+        int scrollLeft = getScrollX() + getPaddingLeft();
+        for (int i = 0; i < count; i++) {
+            View view = getChildAt(i);
+            if (view.getLeft() == scrollLeft) {
                 return view;
             }
         }
-        return this;
+        return null;
     }
 
     /**
@@ -125,13 +396,103 @@ public class ConsecutiveViewPager extends ViewPager implements IConsecutiveScrol
      */
     @Override
     public List<View> getScrolledViews() {
-        List<View> views = new ArrayList<>();
-        int count = getChildCount();
-        if (count > 0) {
+        return new ArrayList<>(getCachedScrolledViews());
+    }
+
+    /**
+     * 返回缓存的滑动view列表，只在内部使用，调用方不能修改或者持有它
+     *
+     * @return
+     */
+    private List<View> getCachedScrolledViews() {
+        if (mScrolledViewsInvalid) {
+            mScrolledViews.clear();
+            int count = getChildCount();
             for (int i = 0; i < count; i++) {
-                views.add(getChildAt(i));
+                mScrolledViews.add(getChildAt(i));
             }
+            mScrolledViewsInvalid = false;
+        }
+        return mScrolledViews;
+    }
+
+    @Override
+    public int getScrolledViewCount() {
+        return getCachedScrolledViews().size();
+    }
+
+    @Override
+    public View getScrolledViewAt(int index) {
+        return getCachedScrolledViews().get(index);
+    }
+
+    @Override
+    public int computeContentScrollOffset() {
+        return ScrollUtils.computeVerticalScrollOffset(getCurrentScrollerView());
+    }
+
+    @Override
+    public int computeContentScrollRange() {
+        return ScrollUtils.computeVerticalScrollRange(getCurrentScrollerView());
+    }
+
+    @Override
+    public int computeContentScrollExtent() {
+        return ScrollUtils.computeVerticalScrollExtent(getCurrentScrollerView());
+    }
+
+    @Override
+    public boolean canScrollContentVertically(int direction) {
+        return ScrollUtils.canScrollVertically(getCurrentScrollerView(), direction);
+    }
+
+    @Override
+    public void scrollContentBy(int dy) {
+        ScrollUtils.scrollContentBy(getCurrentScrollerView(), dy);
+    }
+
+    @Override
+    public void setOnScrollerChangeListener(OnScrollerChangeListener listener) {
+        mOnScrollerChangeListener = listener;
+    }
+
+    /**
+     * 监听当前页面的滑动view，只保留一个监听
+     *
+     * @param page
+     */
+    private void observeScrolledView(View page) {
+        View view = page != null ? ScrollUtils.getScrolledView(page) : null;
+        if (view == this) {
+            view = null;
+        }
+        if (view == mObservedScrolledView) {
+            return;
+        }
+        if (mObservedScrolledView != null) {
+            mObservedScrolledView.removeOnLayoutChangeListener(mScrolledViewLayoutChangeListener);
+        }
+        mObservedScrolledView = view;
+        if (view != null) {
+            view.addOnLayoutChangeListener(mScrolledViewLayoutChangeListener);
+        }
+    }
+
+    /**
+     * 当前页面的内容重新布局后通知ConsecutiveScrollerLayout滑动数值改变了
+     */
+    private void notifyScrollMetricsChanged() {
+        if (mOnScrollerChangeListener != null) {
+            mOnScrollerChangeListener.onScrollMetricsChanged(this);
+        }
+    }
+
+    /**
+     * 切换页面后通知ConsecutiveScrollerLayout当前滑动的view改变了
+     */
+    private void notifyCurrentScrollerChanged() {
+        if (mOnScrollerChangeListener != null) {
+            mOnScrollerChangeListener.onCurrentScrollerChanged(this, getCurrentScrollerView());
         }
-        return views;
     }
 }
@@ -2,6 +2,7 @@ package com.donkingliang.consecutivescroller;
 
 import android.content.Context;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
@@ -26,7 +27,7 @@ import androidx.viewpager2.widget.ViewPager2;
  * 因为Viewpager2不能被继承，所有使用包装类的方式来解决Viewpager2和ConsecutiveScrollerLayout的滑动冲突。
  * @Date 2020/11/6
  */
-public class ConsecutiveViewPager2 extends FrameLayout implements IConsecutiveScroller {
+public class ConsecutiveViewPager2 extends FrameLayout implements LazySyncScroller {
 
     protected ViewPager2 mViewPager2;
     protected RecyclerView mRecyclerView;
@@ -35,6 +36,86 @@ public class ConsecutiveViewPager2 extends FrameLayout implements IConsecutiveSc
 
     private static final int TAG_KEY = -123;
 
+    /**
+     * 缓存的所有页面的滑动view。页面添加、移除或者布局改变时重新计算
+     */
+    private final List<View> mScrolledViews = new ArrayList<>();
+    private boolean mScrolledViewsInvalid = true;
+
+    /**
+     * 缓存的当前页面的滑动view。切换页面、页面添加、移除或者布局改变时重新计算
+     */
+    private View mCurrentScrollerView;
+    private boolean mCurrentScrollerViewInvalid = true;
+
+    /**
+     * 非当前页面是否需要在显示时校验滑动位置
+     */
+    private boolean mPagesNeedSync;
+
+    /**
+     * 是否在切换页面时恢复页面的滑动状态
+     */
+    private boolean mRestorePageScroll;
+
+    /**
+     * 每个页面保存的滑动状态
+     */
+    private final SparseArray<PageScrollState> mPageScrollStates = new SparseArray<>();
+
+    // 上一个选中的页面
+    private int mSelectedPage = -1;
+
+    /**
+     * 页面的滑动状态是按页面位置保存的，adapter的数据改变后页面位置可能对应不同的页面，清空保存的状态
+     */
+    private Adapter mObservedAdapter;
+    private final RecyclerView.AdapterDataObserver mAdapterObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            clearPageScrollStates();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            clearPageScrollStates();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+            clearPageScrollStates();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            clearPageScrollStates();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            clearPageScrollStates();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            clearPageScrollStates();
+        }
+    };
+
+    private OnScrollerChangeListener mOnScrollerChangeListener;
+
+    /**
+     * 监听当前页面滑动view的布局，数据改变等引起的重新布局会改变它的滑动数值
+     */
+    private View mObservedScrolledView;
+    private final OnLayoutChangeListener mScrolledViewLayoutChangeListener = new OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                   int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            notifyScrollMetricsChanged();
+        }
+    };
+
     public ConsecutiveViewPager2(@NonNull Context context) {
         super(context);
         initialize(context);
@@ -54,6 +135,73 @@ public class ConsecutiveViewPager2 extends FrameLayout implements IConsecutiveSc
         mViewPager2 = new ViewPager2(context);
         addView(mViewPager2, LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
         mRecyclerView = (RecyclerView) mViewPager2.getChildAt(0);
+
+        mViewPager2.registerOnPageChangeCallback(new ViewPager2.OnPageChangeCallback() {
+            @Override
+            public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+                // 开始切换页面，相邻的页面显示出来了，校验页面的滑动位置
+                if (mPagesNeedSync && positionOffsetPixels != 0) {
+                    mPagesNeedSync = false;
+                    List<View> views = getCachedScrolledViews();
+                    int size = views.size();
+                    for (int i = 0; i < size; i++) {
+                        scrollChildContent(views.get(i));
+                    }
+                }
+            }
+
+            @Override
+            public void onPageSelected(int position) {
+                // adapter可能是通过getViewPager2()直接设置的
+                observeAdapter();
+                if (mRestorePageScroll && mSelectedPage != -1) {
+                    savePageScroll(mSelectedPage);
+                }
+                mSelectedPage = position;
+                mCurrentScrollerViewInvalid = true;
+
+                PageScrollState state = mRestorePageScroll ? mPageScrollStates.get(position) : null;
+                View scrollerView = getCurrentScrollerView();
+                if (state != null && scrollerView != mRecyclerView && getParent() instanceof ConsecutiveScrollerLayout) {
+                    ((ConsecutiveScrollerLayout) getParent()).restoreChildScroll(ConsecutiveViewPager2.this, scrollerView, state);
+                } else {
+                    scrollChildContent(scrollerView);
+                }
+                notifyCurrentScrollerChanged();
+            }
+        });
+        mRecyclerView.addOnChildAttachStateChangeListener(new RecyclerView.OnChildAttachStateChangeListener() {
+            @Override
+            public void onChildViewAttachedToWindow(@NonNull View view) {
+                invalidateScrolledViews();
+            }
+
+            @Override
+            public void onChildViewDetachedFromWindow(@NonNull View view) {
+                invalidateScrolledViews();
+            }
+        });
+    }
+
+    /**
+     * 页面的结构可能改变了，缓存的滑动view需要重新计算。
+     * FragmentStateAdapter的页面是在item添加之后才把Fragment的view添加到item中的，这会引起重新布局，所以在布局时也需要重新计算。
+     */
+    private void invalidateScrolledViews() {
+        mScrolledViewsInvalid = true;
+        mCurrentScrollerViewInvalid = true;
+    }
+
+    @Override
+    public void requestLayout() {
+        super.requestLayout();
+        invalidateScrolledViews();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        invalidateScrolledViews();
     }
 
     @Override
@@ -104,6 +252,15 @@ public class ConsecutiveViewPager2 extends FrameLayout implements IConsecutiveSc
      */
     @Override
     public View getCurrentScrollerView() {
+        if (mCurrentScrollerViewInvalid || mCurrentScrollerView == null) {
+            mCurrentScrollerView = findCurrentScrollerView();
+            mCurrentScrollerViewInvalid = false;
+            observeScrolledView(mCurrentScrollerView);
+        }
+        return mCurrentScrollerView;
+    }
+
+    private View findCurrentScrollerView() {
         View scrollerView = null;
         int currentItem = getCurrentItem();
         Adapter adapter = mRecyclerView.getAdapter();
@@ -152,30 +309,94 @@ public class ConsecutiveViewPager2 extends FrameLayout implements IConsecutiveSc
     }
 
     private void scrollChildContent(View v) {
-        if (v != null && getParent() instanceof ConsecutiveScrollerLayout) {
-            ConsecutiveScrollerLayout parent = (ConsecutiveScrollerLayout) getParent();
-            int thisIndex = parent.indexOfChild(this);
+        if (v != null && v != mRecyclerView && getParent() instanceof ConsecutiveScrollerLayout) {
+            ((ConsecutiveScrollerLayout) getParent()).syncChildContentScroll(this, v);
+        }
+    }
 
-            // 判断是否需要滑动内容到底部或顶部
+    @Override
+    public void markPagesNeedSync() {
+        mPagesNeedSync = true;
+    }
 
-            if (thisIndex == parent.getChildCount() - 1
-                    && getHeight() < parent.getHeight()
-                    && parent.getScrollY() >= parent.mScrollRange) {
-                return;
-            }
+    /**
+     * 保存页面的滑动状态
+     *
+     * @param position
+     */
+    private void savePageScroll(int position) {
+        LayoutManager layoutManager = mRecyclerView.getLayoutManager();
+        if (layoutManager == null || !(getParent() instanceof ConsecutiveScrollerLayout)) {
+            return;
+        }
+        View itemView = layoutManager.findViewByPosition(position);
+        if (itemView == null) {
+            return;
+        }
+        ConsecutiveScrollerLayout parent = (ConsecutiveScrollerLayout) getParent();
+        PageScrollState state = mPageScrollStates.get(position);
+        if (state == null) {
+            state = new PageScrollState();
+            mPageScrollStates.put(position, state);
+        }
+        state.save(ScrollUtils.getScrolledView(findScrolledItemView(itemView)), parent.getScrollY() - getTop());
+    }
 
-            View firstVisibleView = parent.findFirstVisibleView();
-            if (firstVisibleView == null) {
-                return;
-            }
-            int firstIndex = parent.indexOfChild(firstVisibleView);
+    /**
+     * 设置是否在切换页面时恢复页面的滑动状态。开启后，会记录每个页面列表的位置(item位置 + 偏移量)
+     * 和ConsecutiveScrollerLayout中页面上方布局的收起状态，切换回这个页面时一次定位恢复。
+     *
+     * @param restorePageScroll
+     */
+    public void setRestorePageScroll(boolean restorePageScroll) {
+        mRestorePageScroll = restorePageScroll;
+        if (!restorePageScroll) {
+            mPageScrollStates.clear();
+        }
+        observeAdapter();
+    }
 
-            if (thisIndex < firstIndex) {
-                parent.scrollChildContentToBottom(v);
-            } else if (thisIndex > firstIndex) {
-                parent.scrollChildContentToTop(v);
-            }
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        observeAdapter();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        observeAdapter();
+    }
+
+    /**
+     * 只在开启了恢复页面滑动状态并且添加到窗口时监听adapter的数据改变，避免adapter比ViewPager存在得更久时持有ViewPager。
+     * 监听的adapter改变时清空保存的页面滑动状态
+     */
+    private void observeAdapter() {
+        Adapter adapter = mRestorePageScroll && isAttachedToWindow() ? mRecyclerView.getAdapter() : null;
+        if (adapter == mObservedAdapter) {
+            return;
+        }
+        if (mObservedAdapter != null) {
+            mObservedAdapter.unregisterAdapterDataObserver(mAdapterObserver);
         }
+        mObservedAdapter = adapter;
+        if (adapter != null) {
+            adapter.registerAdapterDataObserver(mAdapterObserver);
+        }
+        clearPageScrollStates();
+    }
+
+    /**
+     * 清空保存的页面滑动状态，重新从当前页面开始记录
+     */
+    private void clearPageScrollStates() {
+        mPageScrollStates.clear();
+        mSelectedPage = getCurrentItem();
+    }
+
+    public boolean isRestorePageScroll() {
+        return mRestorePageScroll;
     }
 
     /**
@@ -185,14 +406,104 @@ public class ConsecutiveViewPager2 extends FrameLayout implements IConsecutiveSc
      */
     @Override
     public List<View> getScrolledViews() {
-        List<View> views = new ArrayList<>();
-        int count = mRecyclerView.getChildCount();
-        if (count > 0) {
+        return new ArrayList<>(getCachedScrolledViews());
+    }
+
+    /**
+     * 返回缓存的滑动view列表，只在内部使用，调用方不能修改或者持有它
+     *
+     * @return
+     */
+    private List<View> getCachedScrolledViews() {
+        if (mScrolledViewsInvalid) {
+            mScrolledViews.clear();
+            int count = mRecyclerView.getChildCount();
             for (int i = 0; i < count; i++) {
-                views.add(findScrolledItemView(mRecyclerView.getChildAt(i)));
+                mScrolledViews.add(findScrolledItemView(mRecyclerView.getChildAt(i)));
             }
+            mScrolledViewsInvalid = false;
+        }
+        return mScrolledViews;
+    }
+
+    @Override
+    public int getScrolledViewCount() {
+        return getCachedScrolledViews().size();
+    }
+
+    @Override
+    public View getScrolledViewAt(int index) {
+        return getCachedScrolledViews().get(index);
+    }
+
+    @Override
+    public int computeContentScrollOffset() {
+        return ScrollUtils.computeVerticalScrollOffset(getCurrentScrollerView());
+    }
+
+    @Override
+    public int computeContentScrollRange() {
+        return ScrollUtils.computeVerticalScrollRange(getCurrentScrollerView());
+    }
+
+    @Override
+    public int computeContentScrollExtent() {
+        return ScrollUtils.computeVerticalScrollExtent(getCurrentScrollerView());
+    }
+
+    @Override
+    public boolean canScrollContentVertically(int direction) {
+        return ScrollUtils.canScrollVertically(getCurrentScrollerView(), direction);
+    }
+
+    @Override
+    public void scrollContentBy(int dy) {
+        ScrollUtils.scrollContentBy(getCurrentScrollerView(), dy);
+    }
+
+    @Override
+    public void setOnScrollerChangeListener(OnScrollerChangeListener listener) {
+        mOnScrollerChangeListener = listener;
+    }
+
+    /**
+     * 监听当前页面的滑动view，只保留一个监听
+     *
+     * @param page
+     */
+    private void observeScrolledView(View page) {
+        View view = page != null ? ScrollUtils.getScrolledView(page) : null;
+        if (view == mRecyclerView) {
+            view = null;
+        }
+        if (view == mObservedScrolledView) {
+            return;
+        }
+        if (mObservedScrolledView != null) {
+            mObservedScrolledView.removeOnLayoutChangeListener(mScrolledViewLayoutChangeListener);
+        }
+        mObservedScrolledView = view;
+        if (view != null) {
+            view.addOnLayoutChangeListener(mScrolledViewLayoutChangeListener);
+        }
+    }
+
+    /**
+     * 当前页面的内容重新布局后通知ConsecutiveScrollerLayout滑动数值改变了
+     */
+    private void notifyScrollMetricsChanged() {
+        if (mOnScrollerChangeListener != null) {
+            mOnScrollerChangeListener.onScrollMetricsChanged(this);
+        }
+    }
+
+    /**
+     * 切换页面后通知ConsecutiveScrollerLayout当前滑动的view改变了
+     */
+    private void notifyCurrentScrollerChanged() {
+        if (mOnScrollerChangeListener != null) {
+            mOnScrollerChangeListener.onCurrentScrollerChanged(this, getCurrentScrollerView());
         }
-        return views;
     }
 
     protected View findScrolledItemView(View view) {
@@ -212,6 +523,7 @@ public class ConsecutiveViewPager2 extends FrameLayout implements IConsecutiveSc
 
     public void setAdapter(@Nullable @SuppressWarnings("rawtypes") RecyclerView.Adapter adapter) {
         mViewPager2.setAdapter(adapter);
+        observeAdapter();
     }
 
     public @Nullable
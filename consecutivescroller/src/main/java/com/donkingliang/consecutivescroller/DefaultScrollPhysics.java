@@ -0,0 +1,129 @@
+package com.donkingliang.consecutivescroller;
+
+import android.view.ViewConfiguration;
+import android.view.animation.Interpolator;
+
+/**
+ * @Author donkingliang
+ * @Description ConsecutiveScrollerLayout默认的滑动手感。
+ * 越界阻尼曲线 y = 1 - base^(-x) 和回弹速度衰减曲线 y = decay^(x(x+1)) 在创建对象时计算成采样表，
+ * 滑动时只需要查表和线性插值。
+ * @Date 2026/10/18
+ */
+public class DefaultScrollPhysics implements ScrollPhysics {
+
+    /**
+     * 默认的越界阻尼基数，公式 y = M(1-100^(-x/H))
+     */
+    public static final float DEFAULT_OVER_SCROLL_RESISTANCE = 100f;
+
+    /**
+     * 默认的回弹速度衰减系数
+     */
+    public static final float DEFAULT_BOUNCE_DECAY = 0.85f;
+
+    public static final int DEFAULT_REBOUND_DURATION = 300;
+
+    private static final int TABLE_SIZE = 256;
+
+    /**
+     * 曲线接近终值时就不再采样，超出采样范围的值取终值
+     */
+    private static final double TABLE_PRECISION = 1e-4;
+
+    private static DefaultScrollPhysics sDefault;
+
+    private final float mFlingFriction;
+    private final int mReboundDuration;
+    private final LookupTable mResistanceTable;
+    private final LookupTable mBounceDecayTable;
+    private final Interpolator mReboundInterpolator;
+
+    /**
+     * 返回共享的默认手感，避免每个ConsecutiveScrollerLayout重复计算采样表
+     *
+     * @return
+     */
+    public static DefaultScrollPhysics getDefault() {
+        if (sDefault == null) {
+            sDefault = new DefaultScrollPhysics();
+        }
+        return sDefault;
+    }
+
+    public DefaultScrollPhysics() {
+        this(ViewConfiguration.getScrollFriction(), DEFAULT_OVER_SCROLL_RESISTANCE,
+                DEFAULT_BOUNCE_DECAY, DEFAULT_REBOUND_DURATION);
+    }
+
+    /**
+     * @param flingFriction      fling的摩擦系数
+     * @param overScrollResistance 越界阻尼基数，必须大于1，越大越快达到最大越界距离
+     * @param bounceDecay        回弹速度衰减系数，范围(0, 1)，越小衰减越快
+     * @param reboundDuration    回弹动画时长，单位：毫秒
+     */
+    public DefaultScrollPhysics(float flingFriction, final float overScrollResistance,
+                                final float bounceDecay, int reboundDuration) {
+        if (overScrollResistance <= 1) {
+            throw new IllegalArgumentException("overScrollResistance must be greater than 1");
+        }
+        if (bounceDecay <= 0 || bounceDecay >= 1) {
+            throw new IllegalArgumentException("bounceDecay must be between 0 and 1");
+        }
+        mFlingFriction = flingFriction;
+        mReboundDuration = reboundDuration;
+
+        // base^(-x) < TABLE_PRECISION 时 x > -ln(TABLE_PRECISION) / ln(base)
+        float resistanceMax = (float) (-Math.log(TABLE_PRECISION) / Math.log(overScrollResistance));
+        mResistanceTable = new LookupTable(resistanceMax, TABLE_SIZE,
+                x -> (float) (1 - Math.pow(overScrollResistance, -x)));
+
+        // decay^(x(x+1)) < TABLE_PRECISION 时 x(x+1) > ln(TABLE_PRECISION) / ln(decay)
+        double exponent = Math.log(TABLE_PRECISION) / Math.log(bounceDecay);
+        float bounceMax = (float) ((Math.sqrt(1 + 4 * exponent) - 1) / 2);
+        mBounceDecayTable = new LookupTable(bounceMax, TABLE_SIZE,
+                x -> (float) Math.pow(bounceDecay, x * (x + 1)));
+
+        mReboundInterpolator = new OverScrollInterpolator(OverScrollInterpolator.INTERPOLATOR_VISCOUS_FLUID);
+    }
+
+    @Override
+    public float getFlingFriction() {
+        return mFlingFriction;
+    }
+
+    @Override
+    public float getOverScrollResistance(float progress) {
+        return mResistanceTable.get(progress);
+    }
+
+    @Override
+    public float getBounceVelocityRatio(float frames) {
+        return mBounceDecayTable.get(frames);
+    }
+
+    @Override
+    public Interpolator getReboundInterpolator() {
+        return mReboundInterpolator;
+    }
+
+    @Override
+    public int getReboundDuration() {
+        return mReboundDuration;
+    }
+
+    @Override
+    public int getSmoothScrollStartOffset() {
+        return 50;
+    }
+
+    @Override
+    public int getSmoothScrollAcceleration() {
+        return 5;
+    }
+
+    @Override
+    public int getSmoothScrollMaxOffset() {
+        return 200;
+    }
+}
@@ -0,0 +1,97 @@
+package com.donkingliang.consecutivescroller;
+
+import android.view.View;
+
+/**
+ * @Author donkingliang
+ * @Description IConsecutiveScroller的扩展接口。
+ *
+ * 实现IConsecutiveScroller2的子view直接把当前滑动view的滑动偏移量、滑动范围、显示范围和能否滑动告诉ConsecutiveScrollerLayout，
+ * 并且由自己处理内容的滑动。ConsecutiveScrollerLayout在滑动过程中不需要再查找当前滑动的view，也不需要通过反射获取滑动的数值，
+ * 遍历滑动view时也不需要创建view列表。
+ *
+ * 当前滑动的view改变，或者不是由ConsecutiveScrollerLayout引起的滑动数值改变(比如数据改变)时，
+ * 通过OnScrollerChangeListener通知ConsecutiveScrollerLayout，ConsecutiveScrollerLayout不需要轮询这些变化。
+ * @Date 2026/10/18
+ */
+public interface IConsecutiveScroller2 extends IConsecutiveScroller {
+
+    /**
+     * 返回可以滑动的子view的数量，和getScrolledViews()返回的列表一致
+     *
+     * @return
+     */
+    int getScrolledViewCount();
+
+    /**
+     * 返回第index个可以滑动的子view
+     *
+     * @param index
+     * @return
+     */
+    View getScrolledViewAt(int index);
+
+    /**
+     * 当前滑动view的内容滑动偏移量
+     *
+     * @return
+     */
+    int computeContentScrollOffset();
+
+    /**
+     * 当前滑动view的内容滑动范围
+     *
+     * @return
+     */
+    int computeContentScrollRange();
+
+    /**
+     * 当前滑动view的内容显示范围
+     *
+     * @return
+     */
+    int computeContentScrollExtent();
+
+    /**
+     * 当前滑动view的内容能否向指定方向滑动
+     *
+     * @param direction 小于0向上，大于0向下
+     * @return
+     */
+    boolean canScrollContentVertically(int direction);
+
+    /**
+     * 滑动当前滑动view的内容
+     *
+     * @param dy
+     */
+    void scrollContentBy(int dy);
+
+    /**
+     * 设置当前滑动view和滑动数值的变化监听，由ConsecutiveScrollerLayout设置。
+     *
+     * @param listener
+     */
+    void setOnScrollerChangeListener(OnScrollerChangeListener listener);
+
+    /**
+     * 当前滑动view和滑动数值的变化监听
+     */
+    interface OnScrollerChangeListener {
+
+        /**
+         * 当前滑动的view改变了
+         *
+         * @param scroller        实现IConsecutiveScroller2的view
+         * @param currentScroller 新的当前滑动view
+         */
+        void onCurrentScrollerChanged(View scroller, View currentScroller);
+
+        /**
+         * 滑动数值改变了。只需要在不是由scrollContentBy引起的变化时通知
+         *
+         * @param scroller 实现IConsecutiveScroller2的view
+         */
+        void onScrollMetricsChanged(View scroller);
+    }
+}
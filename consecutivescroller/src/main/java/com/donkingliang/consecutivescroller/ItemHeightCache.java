@@ -0,0 +1,300 @@
+package com.donkingliang.consecutivescroller;
+
+import android.graphics.Rect;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * @Author donkingliang
+ * @Description RecyclerView的item高度缓存。
+ * RecyclerView的computeVerticalScrollOffset/Range是按item的平均高度估算的，item高度不一致时，滑动偏移量会跳动。
+ * 这里按adapter的位置记录每个item测量到的高度，还没有显示过的item按同类型(viewType)item的高度估算，
+ * 用记录的高度计算精确的滑动偏移量和滑动范围。偏移量的前缀和与总高度都是增量更新的。
+ * 只支持垂直方向、非反向布局的LinearLayoutManager，其他情况仍然使用RecyclerView自己的计算。
+ * @Date 2026/10/18
+ */
+final class ItemHeightCache extends RecyclerView.AdapterDataObserver {
+
+    // 缓存保存在RecyclerView的tag中，和RecyclerView一起回收
+    private static final int TAG_KEY = -124;
+
+    private final RecyclerView mRecyclerView;
+    private RecyclerView.Adapter mAdapter;
+
+    // 每个位置的item高度，还没有测量过的是估算的高度
+    private int[] mHeights = new int[0];
+    private int mCount;
+    // 所有item的高度之和
+    private long mTotalHeight;
+
+    // [0, mPrefixPosition)位置的item高度之和，滑动时只需要增量地移动这个位置
+    private int mPrefixPosition;
+    private long mPrefixHeight;
+
+    // 每种viewType第一次测量到的高度，用于估算同类型的item
+    private final SparseIntArray mTypeHeights = new SparseIntArray();
+    // 第一次测量到的高度，用于估算没有测量过的类型
+    private int mDefaultHeight;
+
+    private final Rect mBounds = new Rect();
+
+    private ItemHeightCache(RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+    }
+
+    /**
+     * 获取view的高度缓存，没有开启缓存时返回null
+     */
+    static ItemHeightCache get(View view) {
+        if (view instanceof RecyclerView) {
+            Object cache = view.getTag(TAG_KEY);
+            return cache instanceof ItemHeightCache ? (ItemHeightCache) cache : null;
+        }
+        return null;
+    }
+
+    /**
+     * 给RecyclerView开启item高度缓存
+     */
+    static void attach(RecyclerView recyclerView) {
+        if (get(recyclerView) == null) {
+            recyclerView.setTag(TAG_KEY, new ItemHeightCache(recyclerView));
+        }
+    }
+
+    /**
+     * 关闭RecyclerView的item高度缓存
+     */
+    static void detach(RecyclerView recyclerView) {
+        ItemHeightCache cache = get(recyclerView);
+        if (cache != null) {
+            recyclerView.setTag(TAG_KEY, null);
+            cache.setAdapter(null);
+        }
+    }
+
+    /**
+     * 是否可以用缓存的高度计算滑动偏移量
+     */
+    boolean isSupported() {
+        RecyclerView.LayoutManager layoutManager = mRecyclerView.getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager) || layoutManager instanceof GridLayoutManager) {
+            return false;
+        }
+        LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+        return linearLayoutManager.getOrientation() == LinearLayoutManager.VERTICAL
+                && !linearLayoutManager.getReverseLayout() && mRecyclerView.getAdapter() != null;
+    }
+
+    int computeVerticalScrollOffset() {
+        update();
+        RecyclerView.LayoutManager layoutManager = mRecyclerView.getLayoutManager();
+        if (layoutManager.getChildCount() == 0) {
+            return 0;
+        }
+        View first = layoutManager.getChildAt(0);
+        int position = getAdapterPosition(first);
+        if (mRecyclerView.hasPendingAdapterUpdates() || position < 0 || position >= mCount) {
+            // 数据变化还没有布局，item的位置和记录的高度对应不上
+            return mRecyclerView.computeVerticalScrollOffset();
+        }
+        mRecyclerView.getDecoratedBoundsWithMargins(first, mBounds);
+        return (int) (getPrefixHeight(position) + mRecyclerView.getPaddingTop() - mBounds.top);
+    }
+
+    /**
+     * 和RecyclerView一样，滑动范围和显示范围都不包括padding
+     */
+    int computeVerticalScrollRange() {
+        update();
+        return (int) mTotalHeight;
+    }
+
+    int computeVerticalScrollExtent() {
+        return mRecyclerView.getHeight() - mRecyclerView.getPaddingTop() - mRecyclerView.getPaddingBottom();
+    }
+
+    /**
+     * 同步adapter，并且记录正在显示的item的高度
+     */
+    private void update() {
+        RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        if (adapter != mAdapter) {
+            setAdapter(adapter);
+        } else if (adapter != null && adapter.getItemCount() != mCount) {
+            // 数据变化没有通知到，重新估算
+            reset();
+        }
+
+        if (mRecyclerView.hasPendingAdapterUpdates()) {
+            // 数据变化还没有布局，显示的item还是旧数据的位置，不能记录
+            return;
+        }
+
+        RecyclerView.LayoutManager layoutManager = mRecyclerView.getLayoutManager();
+        int count = layoutManager.getChildCount();
+        for (int i = 0; i < count; i++) {
+            View child = layoutManager.getChildAt(i);
+            int position = getAdapterPosition(child);
+            if (position >= 0 && position < mCount) {
+                mRecyclerView.getDecoratedBoundsWithMargins(child, mBounds);
+                setHeight(position, mBounds.height(), mRecyclerView.getChildViewHolder(child).getItemViewType());
+            }
+        }
+    }
+
+    /**
+     * 返回item在adapter中的位置。被删除(正在执行删除动画)的item返回RecyclerView.NO_POSITION
+     */
+    private int getAdapterPosition(View child) {
+        ViewGroup.LayoutParams lp = child.getLayoutParams();
+        if (lp instanceof RecyclerView.LayoutParams && ((RecyclerView.LayoutParams) lp).isItemRemoved()) {
+            return RecyclerView.NO_POSITION;
+        }
+        RecyclerView.ViewHolder holder = mRecyclerView.getChildViewHolder(child);
+        return holder != null ? holder.getAbsoluteAdapterPosition() : RecyclerView.NO_POSITION;
+    }
+
+    private void setAdapter(RecyclerView.Adapter adapter) {
+        if (mAdapter != null) {
+            mAdapter.unregisterAdapterDataObserver(this);
+        }
+        mAdapter = adapter;
+        if (mAdapter != null) {
+            mAdapter.registerAdapterDataObserver(this);
+        }
+        mTypeHeights.clear();
+        mDefaultHeight = 0;
+        reset();
+    }
+
+    /**
+     * 清空记录的高度，所有item重新估算
+     */
+    private void reset() {
+        mCount = mAdapter != null ? mAdapter.getItemCount() : 0;
+        mHeights = new int[mCount];
+        mTotalHeight = 0;
+        for (int i = 0; i < mCount; i++) {
+            mHeights[i] = estimateHeight(i);
+            mTotalHeight += mHeights[i];
+        }
+        mPrefixPosition = 0;
+        mPrefixHeight = 0;
+    }
+
+    private int estimateHeight(int position) {
+        return mTypeHeights.get(mAdapter.getItemViewType(position), mDefaultHeight);
+    }
+
+    private void setHeight(int position, int height, int viewType) {
+        int diff = height - mHeights[position];
+        if (diff != 0) {
+            mHeights[position] = height;
+            mTotalHeight += diff;
+            if (position < mPrefixPosition) {
+                mPrefixHeight += diff;
+            }
+        }
+        if (mTypeHeights.indexOfKey(viewType) < 0) {
+            mTypeHeights.put(viewType, height);
+        }
+        if (mDefaultHeight == 0) {
+            mDefaultHeight = height;
+        }
+    }
+
+    /**
+     * [0, position)位置的item高度之和，从上次计算的位置增量计算
+     */
+    private long getPrefixHeight(int position) {
+        while (mPrefixPosition < position) {
+            mPrefixHeight += mHeights[mPrefixPosition++];
+        }
+        while (mPrefixPosition > position) {
+            mPrefixHeight -= mHeights[--mPrefixPosition];
+        }
+        return mPrefixHeight;
+    }
+
+    @Override
+    public void onChanged() {
+        reset();
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+        if (positionStart < 0 || positionStart > mCount || itemCount <= 0) {
+            reset();
+            return;
+        }
+        int newCount = mCount + itemCount;
+        int[] heights = new int[newCount];
+        System.arraycopy(mHeights, 0, heights, 0, positionStart);
+        System.arraycopy(mHeights, positionStart, heights, positionStart + itemCount, mCount - positionStart);
+        mHeights = heights;
+        mCount = newCount;
+
+        long inserted = 0;
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+            mHeights[i] = estimateHeight(i);
+            inserted += mHeights[i];
+        }
+        mTotalHeight += inserted;
+        if (positionStart < mPrefixPosition) {
+            mPrefixPosition += itemCount;
+            mPrefixHeight += inserted;
+        }
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+        if (positionStart < 0 || positionStart + itemCount > mCount || itemCount <= 0) {
+            reset();
+            return;
+        }
+        long removed = 0;
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+            removed += mHeights[i];
+        }
+        int tail = mCount - positionStart - itemCount;
+        System.arraycopy(mHeights, positionStart + itemCount, mHeights, positionStart, tail);
+        mCount -= itemCount;
+        mTotalHeight -= removed;
+
+        if (positionStart + itemCount <= mPrefixPosition) {
+            mPrefixPosition -= itemCount;
+            mPrefixHeight -= removed;
+        } else if (positionStart < mPrefixPosition) {
+            mPrefixPosition = 0;
+            mPrefixHeight = 0;
+        }
+    }
+
+    @Override
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        // 只移动一个item，移动位置之前的前缀和不变
+        int from = Math.min(fromPosition, toPosition);
+        int to = Math.max(fromPosition, toPosition);
+        if (itemCount != 1 || from < 0 || to >= mCount) {
+            reset();
+            return;
+        }
+        int height = mHeights[fromPosition];
+        if (fromPosition < toPosition) {
+            System.arraycopy(mHeights, fromPosition + 1, mHeights, fromPosition, toPosition - fromPosition);
+        } else {
+            System.arraycopy(mHeights, toPosition, mHeights, toPosition + 1, fromPosition - toPosition);
+        }
+        mHeights[toPosition] = height;
+        if (from < mPrefixPosition) {
+            mPrefixPosition = 0;
+            mPrefixHeight = 0;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.donkingliang.consecutivescroller;
+
+/**
+ * @Author donkingliang
+ * @Description 可以延迟校验页面滑动位置的IConsecutiveScroller2，由ConsecutiveViewPager和ConsecutiveViewPager2实现。
+ * ConsecutiveScrollerLayout校验子view内容的滑动位置时，只校验当前页面，其他看不到的页面标记为需要校验，
+ * 等它们显示出来(切换页面或者页面添加到屏幕)的时候再校验一次。
+ * @Date 2026/10/18
+ */
+interface LazySyncScroller extends IConsecutiveScroller2 {
+
+    /**
+     * 标记除当前页面以外的页面需要在显示时校验滑动位置
+     */
+    void markPagesNeedSync();
+}
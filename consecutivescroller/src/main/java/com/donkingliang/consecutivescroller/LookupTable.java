@@ -0,0 +1,45 @@
+package com.donkingliang.consecutivescroller;
+
+/**
+ * @Author donkingliang
+ * @Description 预先计算好的一元函数采样表，在[0, max]范围内用线性插值取值，超出范围时取边界值。
+ * 用于替代每帧都要执行的Math.pow、Math.exp等计算，取值时不会创建对象。
+ * @Date 2026/10/18
+ */
+final class LookupTable {
+
+    interface Function {
+        float apply(float x);
+    }
+
+    private final float[] mValues;
+    private final float mMax;
+    private final float mScale;
+
+    /**
+     * @param max      采样范围的最大值，采样范围为[0, max]
+     * @param size     采样的区间数量
+     * @param function 被采样的函数
+     */
+    LookupTable(float max, int size, Function function) {
+        mMax = max;
+        mScale = size / max;
+        mValues = new float[size + 1];
+        for (int i = 0; i <= size; i++) {
+            mValues[i] = function.apply(i / mScale);
+        }
+    }
+
+    float get(float x) {
+        if (x <= 0) {
+            return mValues[0];
+        }
+        if (x >= mMax) {
+            return mValues[mValues.length - 1];
+        }
+        float position = x * mScale;
+        int index = (int) position;
+        float start = mValues[index];
+        return start + (mValues[index + 1] - start) * (position - index);
+    }
+}
@@ -25,11 +25,23 @@ public class OverScrollInterpolator implements Interpolator {
     private static final float VISCOUS_FLUID_NORMALIZE;
     private static final float VISCOUS_FLUID_OFFSET;
 
+    /**
+     * viscousFluid曲线的采样表，避免动画的每一帧都计算Math.exp
+     */
+    private static final LookupTable VISCOUS_FLUID_TABLE;
+
     static {
         // must be set to 1.0 (used in viscousFluid())
         VISCOUS_FLUID_NORMALIZE = 1.0f / viscousFluid(1.0f);
         // account for very small floating-point error
         VISCOUS_FLUID_OFFSET = 1.0f - VISCOUS_FLUID_NORMALIZE * viscousFluid(1.0f);
+        VISCOUS_FLUID_TABLE = new LookupTable(1.0f, 256, input -> {
+            final float interpolated = VISCOUS_FLUID_NORMALIZE * viscousFluid(input);
+            if (interpolated > 0) {
+                return interpolated + VISCOUS_FLUID_OFFSET;
+            }
+            return interpolated;
+        });
     }
 
     private static float viscousFluid(float x) {
@@ -49,11 +61,7 @@ public class OverScrollInterpolator implements Interpolator {
         if (type == INTERPOLATOR_DECELERATE) {
             return (1.0f - (1.0f - input) * (1.0f - input));
         }
-        final float interpolated = VISCOUS_FLUID_NORMALIZE * viscousFluid(input);
-        if (interpolated > 0) {
-            return interpolated + VISCOUS_FLUID_OFFSET;
-        }
-        return interpolated;
+        return VISCOUS_FLUID_TABLE.get(input);
     }
 
 }
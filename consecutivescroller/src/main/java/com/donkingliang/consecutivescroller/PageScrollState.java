@@ -0,0 +1,87 @@
+package com.donkingliang.consecutivescroller;
+
+import android.view.View;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * @Author donkingliang
+ * @Description 保存ViewPager页面的滑动状态：页面上方布局(header)的收起状态和页面列表的锚点(item位置 + 偏移量)。
+ * 切换回这个页面时，由ConsecutiveScrollerLayout一次定位恢复，不需要循环滑动。
+ * @Date 2026/10/18
+ */
+final class PageScrollState {
+
+    /**
+     * ConsecutiveScrollerLayout滑动到页面顶部以下的距离。小于0表示页面上方的布局还没有完全收起，这时页面列表在顶部。
+     */
+    int headerOffset;
+
+    // RecyclerView第一个显示的item位置和它的偏移量
+    private int mPosition = RecyclerView.NO_POSITION;
+    private int mOffset;
+
+    // 其他滑动view的滑动位置
+    private int mScrollY;
+
+    /**
+     * 保存页面的滑动状态
+     *
+     * @param target       页面中滑动的view
+     * @param headerOffset ConsecutiveScrollerLayout滑动到页面顶部以下的距离
+     */
+    void save(View target, int headerOffset) {
+        this.headerOffset = headerOffset;
+        mPosition = RecyclerView.NO_POSITION;
+        mOffset = 0;
+        mScrollY = 0;
+
+        if (target instanceof RecyclerView) {
+            RecyclerView recyclerView = (RecyclerView) target;
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (layoutManager != null && layoutManager.getChildCount() > 0) {
+                View first = layoutManager.getChildAt(0);
+                mPosition = layoutManager.getPosition(first);
+                mOffset = layoutManager.getDecoratedTop(first) - recyclerView.getPaddingTop();
+            }
+        } else if (target != null) {
+            mScrollY = ScrollUtils.computeVerticalScrollOffset(target);
+        }
+    }
+
+    /**
+     * 恢复页面列表的滑动位置。RecyclerView在下一次布局时定位到保存的item
+     *
+     * @param target 页面中滑动的view
+     */
+    void restore(View target) {
+        if (headerOffset < 0) {
+            // 页面上方的布局没有完全收起，页面列表在顶部
+            scrollToTop(target);
+            return;
+        }
+
+        if (target instanceof RecyclerView) {
+            RecyclerView.LayoutManager layoutManager = ((RecyclerView) target).getLayoutManager();
+            if (mPosition == RecyclerView.NO_POSITION || layoutManager == null) {
+                return;
+            }
+            if (layoutManager instanceof LinearLayoutManager) {
+                ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(mPosition, mOffset);
+            } else {
+                ((RecyclerView) target).scrollToPosition(mPosition);
+            }
+        } else if (target != null) {
+            target.scrollTo(0, mScrollY);
+        }
+    }
+
+    private static void scrollToTop(View target) {
+        if (target instanceof RecyclerView) {
+            ((RecyclerView) target).scrollToPosition(0);
+        } else if (target != null) {
+            target.scrollTo(0, 0);
+        }
+    }
+}
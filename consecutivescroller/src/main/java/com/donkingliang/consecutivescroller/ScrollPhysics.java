@@ -0,0 +1,72 @@
+package com.donkingliang.consecutivescroller;
+
+import android.view.animation.Interpolator;
+
+/**
+ * @Author donkingliang
+ * @Description ConsecutiveScrollerLayout的滑动手感参数，包括fling的摩擦系数、越界拖动的阻尼、越界回弹的参数和平滑滑动的速度。
+ * 可以通过ConsecutiveScrollerLayout.setScrollPhysics()为不同的页面设置不同的手感。
+ * 这些方法会在滑动的每一帧里调用，实现时应该避免耗时的计算和创建对象，默认实现{@link DefaultScrollPhysics}使用预先计算好的采样表。
+ * @Date 2026/10/18
+ */
+public interface ScrollPhysics {
+
+    /**
+     * fling的摩擦系数，参考{@link android.widget.OverScroller#setFriction(float)}
+     *
+     * @return
+     */
+    float getFlingFriction();
+
+    /**
+     * 越界拖动的阻尼曲线。实际越界距离 = 最大越界距离 * 返回值
+     *
+     * @param progress 拖动距离与参考高度的比值，大于等于0
+     * @return 实际越界距离占最大越界距离的比例，范围[0, 1]
+     */
+    float getOverScrollResistance(float progress);
+
+    /**
+     * fling越界后惯性滑动的速度衰减
+     *
+     * @param frames 越界后经过的时间，以10ms为单位
+     * @return 剩余速度与越界时速度的比值，范围[0, 1]
+     */
+    float getBounceVelocityRatio(float frames);
+
+    /**
+     * 越界回弹动画的插值器
+     *
+     * @return
+     */
+    Interpolator getReboundInterpolator();
+
+    /**
+     * 拖动越界后，松开手指时回弹动画的时长
+     *
+     * @return 单位：毫秒
+     */
+    int getReboundDuration();
+
+    /**
+     * 平滑滑动到指定子view时，每个时间单位的初始滑动距离。
+     * 平滑滑动的速度以60Hz屏幕的一帧(约16.7ms)为时间单位，实际的滑动距离按帧的时间计算，与屏幕刷新率无关
+     *
+     * @return 单位：像素，正数
+     */
+    int getSmoothScrollStartOffset();
+
+    /**
+     * 平滑滑动到指定子view时，每个时间单位滑动距离的增加量
+     *
+     * @return 单位：像素，正数
+     */
+    int getSmoothScrollAcceleration();
+
+    /**
+     * 平滑滑动到指定子view时，每个时间单位的最大滑动距离
+     *
+     * @return 单位：像素，正数
+     */
+    int getSmoothScrollMaxOffset();
+}
@@ -5,10 +5,13 @@ import android.os.Build;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.webkit.WebView;
 import android.widget.AbsListView;
+import android.widget.ScrollView;
 
 import androidx.core.view.ScrollingView;
 import androidx.core.view.ViewCompat;
+import androidx.core.widget.NestedScrollView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.StaggeredGridLayoutManager;
@@ -29,8 +32,34 @@ public class ScrollUtils {
     static Method computeVerticalScrollExtentMethod;
 
     static int computeVerticalScrollOffset(View view) {
+        IConsecutiveScroller2 scroller = getConsecutiveScroller2(view);
+        if (scroller != null) {
+            IConsecutiveScroller2 last = startDispatch(scroller);
+            try {
+                return scroller.computeContentScrollOffset();
+            } finally {
+                sDispatchingScroller = last;
+            }
+        }
+
         View scrolledView = getScrolledView(view);
 
+        if (scrolledView instanceof ConsecutiveScrollerLayout) {
+            // 嵌套的ConsecutiveScrollerLayout返回它滑动时记录的偏移量，不需要递归计算它所有的下级view
+            return ((ConsecutiveScrollerLayout) scrolledView).getNestedScrollOffset();
+        }
+
+        // WebView按网页内容高度计算，不需要反射
+        if (scrolledView instanceof WebView) {
+            return WebViewHelper.computeVerticalScrollOffset((WebView) scrolledView);
+        }
+
+        // 开启了item高度缓存的RecyclerView，使用缓存计算精确的值
+        ItemHeightCache cache = ItemHeightCache.get(scrolledView);
+        if (cache != null && cache.isSupported()) {
+            return cache.computeVerticalScrollOffset();
+        }
+
         if (scrolledView instanceof ScrollingView) {
             return ((ScrollingView) scrolledView).computeVerticalScrollOffset();
         }
@@ -51,8 +80,29 @@ public class ScrollUtils {
     }
 
     static int computeVerticalScrollRange(View view) {
+        IConsecutiveScroller2 scroller = getConsecutiveScroller2(view);
+        if (scroller != null) {
+            IConsecutiveScroller2 last = startDispatch(scroller);
+            try {
+                return scroller.computeContentScrollRange();
+            } finally {
+                sDispatchingScroller = last;
+            }
+        }
+
         View scrolledView = getScrolledView(view);
 
+        // WebView按网页内容高度计算，不需要反射
+        if (scrolledView instanceof WebView) {
+            return WebViewHelper.computeVerticalScrollRange((WebView) scrolledView);
+        }
+
+        // 开启了item高度缓存的RecyclerView，使用缓存计算精确的值
+        ItemHeightCache cache = ItemHeightCache.get(scrolledView);
+        if (cache != null && cache.isSupported()) {
+            return cache.computeVerticalScrollRange();
+        }
+
         if (scrolledView instanceof ScrollingView) {
             return ((ScrollingView) scrolledView).computeVerticalScrollRange();
         }
@@ -73,8 +123,29 @@ public class ScrollUtils {
     }
 
     static int computeVerticalScrollExtent(View view) {
+        IConsecutiveScroller2 scroller = getConsecutiveScroller2(view);
+        if (scroller != null) {
+            IConsecutiveScroller2 last = startDispatch(scroller);
+            try {
+                return scroller.computeContentScrollExtent();
+            } finally {
+                sDispatchingScroller = last;
+            }
+        }
+
         View scrolledView = getScrolledView(view);
 
+        // WebView按网页内容高度计算，不需要反射
+        if (scrolledView instanceof WebView) {
+            return WebViewHelper.computeVerticalScrollExtent((WebView) scrolledView);
+        }
+
+        // 开启了item高度缓存的RecyclerView，使用缓存计算精确的值
+        ItemHeightCache cache = ItemHeightCache.get(scrolledView);
+        if (cache != null && cache.isSupported()) {
+            return cache.computeVerticalScrollExtent();
+        }
+
         if (scrolledView instanceof ScrollingView) {
             return ((ScrollingView) scrolledView).computeVerticalScrollExtent();
         }
@@ -95,6 +166,142 @@ public class ScrollUtils {
         return scrolledView.getHeight();
     }
 
+    /**
+     * 滑动view的内容
+     *
+     * @param view
+     * @param y
+     */
+    static void scrollContentBy(View view, int y) {
+        IConsecutiveScroller2 scroller = getConsecutiveScroller2(view);
+        if (scroller != null) {
+            IConsecutiveScroller2 last = startDispatch(scroller);
+            try {
+                scroller.scrollContentBy(y);
+            } finally {
+                sDispatchingScroller = last;
+            }
+            return;
+        }
+
+        View scrolledView = getScrolledView(view);
+        if (scrolledView instanceof WebView) {
+            WebViewHelper.scrollBy((WebView) scrolledView, y);
+        } else if (scrolledView instanceof AbsListView) {
+            AbsListView listView = (AbsListView) scrolledView;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                listView.scrollListBy(y);
+            }
+        } else {
+            boolean isInterceptRequestLayout = false;
+            if (scrolledView instanceof RecyclerView) {
+                isInterceptRequestLayout = startInterceptRequestLayout((RecyclerView) scrolledView);
+            }
+
+            scrolledView.scrollBy(0, y);
+
+            if (isInterceptRequestLayout) {
+                final RecyclerView recyclerView = (RecyclerView) scrolledView;
+                recyclerView.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        stopInterceptRequestLayout(recyclerView);
+                    }
+                }, 0);
+            }
+        }
+    }
+
+    /**
+     * 停止view自己的惯性滑动
+     *
+     * @param view
+     */
+    static void stopScroll(View view) {
+        if (view instanceof RecyclerView) {
+            ((RecyclerView) view).stopScroll();
+        } else if (view instanceof AbsListView) {
+            ((AbsListView) view).smoothScrollBy(0, 0);
+        } else if (view instanceof NestedScrollView) {
+            ((NestedScrollView) view).smoothScrollBy(0, 0);
+        } else if (view instanceof ScrollView) {
+            ((ScrollView) view).smoothScrollBy(0, 0);
+        }
+    }
+
+    // 正在把滑动数值的计算交给它处理的IConsecutiveScroller2
+    private static IConsecutiveScroller2 sDispatchingScroller;
+
+    /**
+     * 开始把滑动数值的计算交给scroller处理
+     *
+     * @param scroller
+     * @return 上一个正在处理的IConsecutiveScroller2，处理完成后(包括抛出异常时)需要在finally中恢复
+     */
+    private static IConsecutiveScroller2 startDispatch(IConsecutiveScroller2 scroller) {
+        IConsecutiveScroller2 last = sDispatchingScroller;
+        sDispatchingScroller = scroller;
+        return last;
+    }
+
+    /**
+     * 返回view(或者它通过layout_scrollChild指定的滑动子view)实现的IConsecutiveScroller2。
+     * 如果它当前滑动的view是它自己(比如ViewPager没有页面)，按普通的view处理，返回null。
+     * 如果它正在处理滑动数值的计算，又用它自己调用了ScrollUtils的方法，也按普通的view处理，避免无限递归。
+     *
+     * @param view
+     * @return
+     */
+    static IConsecutiveScroller2 getConsecutiveScroller2(View view) {
+        View scrollChild = getScrollChild(view);
+        if (scrollChild instanceof IConsecutiveScroller2 && scrollChild != sDispatchingScroller) {
+            IConsecutiveScroller2 scroller = (IConsecutiveScroller2) scrollChild;
+            if (scroller.getCurrentScrollerView() != scrollChild) {
+                return scroller;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 返回IConsecutiveScroller的滑动子view列表。IConsecutiveScroller2通过下标获取滑动子view，不需要列表，返回null
+     *
+     * @param scroller
+     * @return
+     */
+    static List<View> getScrolledViewList(IConsecutiveScroller scroller) {
+        return scroller instanceof IConsecutiveScroller2 ? null : scroller.getScrolledViews();
+    }
+
+    /**
+     * 返回IConsecutiveScroller滑动子view的数量
+     *
+     * @param scroller
+     * @param views    getScrolledViewList()返回的列表
+     * @return
+     */
+    static int getScrolledViewCount(IConsecutiveScroller scroller, List<View> views) {
+        if (scroller instanceof IConsecutiveScroller2) {
+            return ((IConsecutiveScroller2) scroller).getScrolledViewCount();
+        }
+        return views != null ? views.size() : 0;
+    }
+
+    /**
+     * 返回IConsecutiveScroller的第index个滑动子view
+     *
+     * @param scroller
+     * @param views    getScrolledViewList()返回的列表
+     * @param index
+     * @return
+     */
+    static View getScrolledViewAt(IConsecutiveScroller scroller, List<View> views, int index) {
+        if (scroller instanceof IConsecutiveScroller2) {
+            return ((IConsecutiveScroller2) scroller).getScrolledViewAt(index);
+        }
+        return views.get(index);
+    }
+
     /**
      * 获取View滑动到自身顶部的偏移量
      *
@@ -154,6 +361,16 @@ public class ScrollUtils {
      * @return
      */
     static boolean canScrollVertically(View view, int direction) {
+        IConsecutiveScroller2 scroller = getConsecutiveScroller2(view);
+        if (scroller != null) {
+            IConsecutiveScroller2 last = startDispatch(scroller);
+            try {
+                return scroller.canScrollContentVertically(direction);
+            } finally {
+                sDispatchingScroller = last;
+            }
+        }
+
         View scrolledView = getScrolledView(view);
 
         if (scrolledView.getVisibility() == View.GONE) {
@@ -161,6 +378,10 @@ public class ScrollUtils {
             return false;
         }
 
+        if (scrolledView instanceof WebView) {
+            return WebViewHelper.canScrollVertically((WebView) scrolledView, direction);
+        }
+
         if (scrolledView instanceof AbsListView) {
             AbsListView listView = (AbsListView) scrolledView;
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
@@ -429,16 +650,22 @@ public class ScrollUtils {
      * @return
      */
     static boolean isConsecutiveScrollParent(View view) {
+        return isConsecutiveScrollerChild(findConsecutiveParentChild(view));
+    }
+
+    /**
+     * 返回view所在的最近的ConsecutiveScrollerLayout容器的子view(view本身或者它的上级view)，不在容器中时返回null
+     *
+     * @param view
+     * @return
+     */
+    static View findConsecutiveParentChild(View view) {
         View child = view;
         while (child.getParent() instanceof ViewGroup && !(child.getParent() instanceof ConsecutiveScrollerLayout)) {
             child = (View) child.getParent();
         }
 
-        if (child.getParent() instanceof ConsecutiveScrollerLayout) {
-            return isConsecutiveScrollerChild(child);
-        } else {
-            return false;
-        }
+        return child.getParent() instanceof ConsecutiveScrollerLayout ? child : null;
     }
 
     /**
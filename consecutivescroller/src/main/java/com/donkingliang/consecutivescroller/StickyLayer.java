@@ -0,0 +1,113 @@
+package com.donkingliang.consecutivescroller;
+
+import android.graphics.Canvas;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build;
+import android.view.View;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * @Author donkingliang
+ * @Description 吸顶图层。把吸顶view录制到RenderNode中，由ConsecutiveScrollerLayout在吸顶的位置绘制，
+ * 吸顶view本身留在布局的位置上，滑动时不需要修改它的TranslationY。
+ * 只有吸顶view自己刷新或者大小改变时才重新录制。
+ * @Date 2026/10/18
+ */
+@RequiresApi(Build.VERSION_CODES.Q)
+final class StickyLayer {
+
+    private final View mView;
+    private final RenderNode mRenderNode;
+
+    // 吸顶的位置
+    private int mY;
+
+    // 是否需要重新录制
+    private boolean mDirty = true;
+
+    // 吸顶view被触摸时，退出图层，直接移动吸顶view本身，直到它不再吸顶
+    private boolean mDetached;
+
+    StickyLayer(View view) {
+        mView = view;
+        mRenderNode = new RenderNode("ConsecutiveSticky");
+    }
+
+    View getView() {
+        return mView;
+    }
+
+    int getY() {
+        return mY;
+    }
+
+    /**
+     * 设置吸顶的位置
+     *
+     * @return 位置是否改变
+     */
+    boolean setY(int y) {
+        if (mY != y) {
+            mY = y;
+            return true;
+        }
+        return false;
+    }
+
+    void invalidate() {
+        mDirty = true;
+    }
+
+    boolean isDetached() {
+        return mDetached;
+    }
+
+    void setDetached(boolean detached) {
+        mDetached = detached;
+        mDirty = true;
+    }
+
+    /**
+     * 吸顶的位置是否包含点(x, y)
+     */
+    boolean contains(int x, int y) {
+        return x >= mView.getLeft() && x < mView.getRight()
+                && y >= mY && y < mY + mView.getHeight();
+    }
+
+    void draw(Canvas canvas) {
+        int width = mView.getWidth();
+        int height = mView.getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        if (!canvas.isHardwareAccelerated()) {
+            // 不是硬件加速的画布(比如把布局绘制到Bitmap上)，直接绘制吸顶view
+            int saveCount = canvas.save();
+            canvas.translate(mView.getLeft(), mY);
+            mView.draw(canvas);
+            canvas.restoreToCount(saveCount);
+            return;
+        }
+
+        if (mDirty || !mRenderNode.hasDisplayList()) {
+            RecordingCanvas recordingCanvas = mRenderNode.beginRecording(width, height);
+            try {
+                mView.draw(recordingCanvas);
+            } finally {
+                mRenderNode.endRecording();
+            }
+            mDirty = false;
+        }
+
+        mRenderNode.setPosition(mView.getLeft(), mY, mView.getLeft() + width, mY + height);
+        canvas.drawRenderNode(mRenderNode);
+    }
+
+    void release() {
+        mRenderNode.discardDisplayList();
+    }
+}
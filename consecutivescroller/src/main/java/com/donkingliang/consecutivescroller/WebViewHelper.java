@@ -0,0 +1,91 @@
+package com.donkingliang.consecutivescroller;
+
+import android.view.View;
+import android.webkit.WebView;
+
+/**
+ * @Author donkingliang
+ * @Description WebView的滑动数值。
+ * WebView没有实现ScrollingView，通过反射获取的滑动范围在页面加载过程中不稳定，
+ * 这里直接用网页的内容高度(getContentHeight() * 缩放比例)计算滑动范围，用getScrollY()作为滑动偏移量，
+ * 并按内容高度限制滑动距离，滑动过程中不需要反射。
+ * 同时记录联动容器子view中WebView的内容高度，内容高度改变时通知联动容器校验布局。
+ * @Date 2026/10/18
+ */
+final class WebViewHelper {
+
+    // WebView所在的联动容器子view
+    private final View mChild;
+    private final WebView mWebView;
+
+    // 上次记录的滑动范围
+    private int mScrollRange = -1;
+
+    WebViewHelper(View child, WebView webView) {
+        mChild = child;
+        mWebView = webView;
+    }
+
+    View getChild() {
+        return mChild;
+    }
+
+    WebView getWebView() {
+        return mWebView;
+    }
+
+    /**
+     * 重新记录滑动范围
+     *
+     * @return 滑动范围是否改变了(网页内容高度改变)。第一次记录时返回false
+     */
+    boolean updateScrollRange() {
+        int range = computeVerticalScrollRange(mWebView);
+        boolean changed = mScrollRange != -1 && mScrollRange != range;
+        mScrollRange = range;
+        return changed;
+    }
+
+    static int computeVerticalScrollOffset(WebView webView) {
+        return webView.getScrollY();
+    }
+
+    @SuppressWarnings("deprecation")
+    static int computeVerticalScrollRange(WebView webView) {
+        int contentHeight = (int) Math.floor(webView.getContentHeight() * webView.getScale());
+        return Math.max(contentHeight, computeVerticalScrollExtent(webView));
+    }
+
+    static int computeVerticalScrollExtent(WebView webView) {
+        return webView.getHeight();
+    }
+
+    /**
+     * 可以滑动的最大偏移量
+     */
+    private static int getMaxScrollY(WebView webView) {
+        return Math.max(computeVerticalScrollRange(webView) - computeVerticalScrollExtent(webView), 0);
+    }
+
+    static boolean canScrollVertically(WebView webView, int direction) {
+        if (direction > 0) {
+            return webView.getScrollY() < getMaxScrollY(webView);
+        } else {
+            return webView.getScrollY() > 0;
+        }
+    }
+
+    /**
+     * 滑动WebView，滑动距离限制在内容高度以内
+     *
+     * @param webView
+     * @param y
+     */
+    static void scrollBy(WebView webView, int y) {
+        int scrollY = webView.getScrollY();
+        int targetY = Math.max(0, Math.min(scrollY + y, getMaxScrollY(webView)));
+        if (targetY != scrollY) {
+            webView.scrollTo(webView.getScrollX(), targetY);
+        }
+    }
+}